@@ -0,0 +1,117 @@
+package bench;
+
+import model.User;
+import org.testcontainers.containers.PostgreSQLContainer;
+import util.HibernateUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * База данных для бенчмарков.
+ *
+ * <p>Если задано {@code -Dbench.jdbc.url}, используется указанная база (например, локальный PostgreSQL),
+ * иначе поднимается PostgreSQL в Testcontainers. Схема пересоздаётся при каждом запуске: таблицы удаляются,
+ * после чего применяются миграции.</p>
+ */
+final class BenchDatabase {
+
+    private static PostgreSQLContainer<?> container;
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * Поднимает базу и инициализирует {@link HibernateUtil}.
+     *
+     * @param extraSettings дополнительные настройки Hibernate для конкретного бенчмарка
+     */
+    static void start(Properties extraSettings) {
+        Properties props = new Properties();
+        String url = System.getProperty("bench.jdbc.url");
+        if (url != null) {
+            props.setProperty("hibernate.connection.url", url);
+            props.setProperty("hibernate.connection.username", System.getProperty("bench.jdbc.user", "postgres"));
+            props.setProperty("hibernate.connection.password", System.getProperty("bench.jdbc.password", "postgres"));
+        } else {
+            container = new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("userdb-bench")
+                    .withUsername("postgres-bench")
+                    .withPassword("postgres-bench");
+            container.start();
+            props.setProperty("hibernate.connection.url", container.getJdbcUrl());
+            props.setProperty("hibernate.connection.username", container.getUsername());
+            props.setProperty("hibernate.connection.password", container.getPassword());
+        }
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+        props.setProperty("pool.maxSize", System.getProperty("bench.pool.maxSize", "32"));
+        props.putAll(extraSettings);
+
+        dropSchema(props);
+        HibernateUtil.init(props);
+    }
+
+    private static void dropSchema(Properties props) {
+        try (Connection connection = DriverManager.getConnection(props.getProperty("hibernate.connection.url"),
+                props.getProperty("hibernate.connection.username"), props.getProperty("hibernate.connection.password"));
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS users, flyway_schema_history");
+            statement.execute("DROP SEQUENCE IF EXISTS users_seq");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось пересоздать схему", e);
+        }
+    }
+
+    /**
+     * Закрывает {@link HibernateUtil} и останавливает контейнер, если он был поднят.
+     */
+    static void stop() {
+        HibernateUtil.shutdown();
+        if (container != null) {
+            container.stop();
+            container = null;
+        }
+    }
+
+    /**
+     * Заполняет таблицу пользователями пачками.
+     *
+     * @param count  сколько пользователей создать
+     * @param prefix префикс email, чтобы email не пересекались между вызовами
+     * @return ID созданных пользователей
+     */
+    static long[] fill(int count, String prefix) {
+        long[] ids = new long[count];
+        int saved = 0;
+        while (saved < count) {
+            int chunk = Math.min(10_000, count - saved);
+            List<User> users = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk; i++) {
+                users.add(newUser(prefix + (saved + i)));
+            }
+            new dao.UserDaoImpl().saveAll(users);
+            for (User user : users) {
+                ids[saved++] = user.getId();
+            }
+        }
+        return ids;
+    }
+
+    static User newUser(String key) {
+        return User.builder()
+                .name("Name-" + key)
+                .email(key + "@bench.local")
+                .age(18 + Math.floorMod(key.hashCode(), 60))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
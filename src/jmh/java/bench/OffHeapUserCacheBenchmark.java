@@ -0,0 +1,99 @@
+package bench;
+
+import cache.OffHeapUserCache;
+import lombok.extern.slf4j.Slf4j;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение пользователя по ID из кэша вне кучи ({@code offheap}) и из {@link ConcurrentHashMap} с объектами
+ * {@code User} в куче ({@code heap}) при {@code users} записях.
+ *
+ * <p>Кроме времени чтения важна нагрузка на сборщик мусора: после заполнения пишутся занятая куча
+ * и длительность полной сборки. Подробнее — с профилировщиком {@code -prof gc}.</p>
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+@Threads(4)
+public class OffHeapUserCacheBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int users;
+
+    @Param({"offheap", "heap"})
+    public String store;
+
+    private OffHeapUserCache offHeap;
+    private Map<Long, User> heap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+        if (store.equals("offheap")) {
+            offHeap = new OffHeapUserCache(users);
+        } else {
+            heap = new ConcurrentHashMap<>(users * 2);
+        }
+        for (long id = 1; id <= users; id++) {
+            User user = User.builder().id(id).name("Пользователь " + id).email("user" + id + "@example.com")
+                    .age((int) (id % 80)).createdAt(createdAt).version(0L).build();
+            if (offHeap != null) {
+                offHeap.putLoaded(user, offHeap.beginLoad(id));
+            } else {
+                heap.put(id, user);
+            }
+        }
+
+        long gcBefore = gcMillis();
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        log.info("{}: {} пользователей, куча {} МБ, вне кучи {} МБ, полная сборка {} мс", store, users,
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024),
+                offHeap == null ? 0 : offHeap.reservedBytes() / (1024 * 1024), gcMillis() - gcBefore);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (offHeap != null) {
+            offHeap.close();
+        }
+    }
+
+    @Benchmark
+    public User get() {
+        long id = ThreadLocalRandom.current().nextLong(1, users + 1);
+        return offHeap != null ? offHeap.get(id) : heap.get(id);
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import analytics.NameCount;
+import analytics.UserColumns;
+import dao.AgeBucket;
+import dao.AgeStats;
+import dao.SignupBucket;
+import dao.TimeBucket;
+import dao.UserSearch;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операторы колоночного снимка {@link UserColumns} на синтетических данных, без базы.
+ *
+ * <p>Снимок строится один раз на пробу: {@code users} пользователей с 1000 разных имён, возрастом
+ * от 18 до 80 и регистрациями, равномерно распределёнными по трём годам. Объём снимка пишется в лог;
+ * для сравнения с {@code findAll()} — порядка сотен байт на сущность {@code User}.</p>
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class UserColumnsBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final int PERIOD_SECONDS = 3 * 365 * 86_400;
+
+    @Param({"1000000", "10000000"})
+    public int users;
+
+    private UserColumns columns;
+    private UserSearch filter;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        UserColumns.Builder builder = UserColumns.builder();
+        for (int i = 1; i <= users; i++) {
+            builder.add(i, "Имя" + random.nextInt(1000), "user" + i + "@example.com", 18 + random.nextInt(63),
+                    START.plusSeconds(random.nextInt(PERIOD_SECONDS)));
+        }
+        columns = builder.build();
+        filter = UserSearch.builder()
+                .minAge(25)
+                .maxAge(40)
+                .createdFrom(START.plusYears(1))
+                .build();
+        log.info("Снимок: {} пользователей, ~{} МБ", columns.size(), columns.estimatedBytes() / (1024 * 1024));
+    }
+
+    @Benchmark
+    public long count() {
+        return columns.count(filter);
+    }
+
+    @Benchmark
+    public AgeStats ageStats() {
+        return columns.ageStats(filter);
+    }
+
+    @Benchmark
+    public List<AgeBucket> ageHistogram() {
+        return columns.ageHistogram(filter, 5);
+    }
+
+    @Benchmark
+    public List<SignupBucket> signupsByMonth() {
+        return columns.signups(filter, TimeBucket.MONTH);
+    }
+
+    @Benchmark
+    public List<NameCount> topNamesByPrefix() {
+        return columns.topNames(UserSearch.builder().namePrefix("Имя1").build(), 10);
+    }
+}
@@ -0,0 +1,109 @@
+package bench;
+
+import dao.UserDao;
+import dao.UserDaoImpl;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Однопоточная стоимость операций {@link UserDaoImpl} при разном размере таблицы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDaoBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private UserDao userDao;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties settings = new Properties();
+        settings.setProperty("hibernate.cache.use_second_level_cache", "false");
+        BenchDatabase.start(settings);
+        userDao = new UserDaoImpl();
+        ids = BenchDatabase.fill(tableSize, "seed-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    /**
+     * Пользователь, создаваемый перед каждым вызовом бенчмарка удаления.
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+        User user;
+
+        @Setup(Level.Invocation)
+        public void create(UserDaoBenchmark benchmark) {
+            user = BenchDatabase.newUser("victim-" + benchmark.sequence.incrementAndGet());
+            benchmark.userDao.save(user);
+        }
+    }
+
+    @Benchmark
+    public User save() {
+        User user = BenchDatabase.newUser("save-" + sequence.incrementAndGet());
+        userDao.save(user);
+        return user;
+    }
+
+    @Benchmark
+    public User findById() {
+        return userDao.findById(randomId());
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return userDao.findAll();
+    }
+
+    @Benchmark
+    public int updateById() {
+        return userDao.updateById(randomId(), "Updated", "updated-" + sequence.incrementAndGet() + "@bench.local", 30);
+    }
+
+    @Benchmark
+    public void updateMerge() {
+        User user = userDao.findById(randomId());
+        user.setAge(user.getAge() + 1);
+        userDao.update(user);
+    }
+
+    @Benchmark
+    public int deleteById(Victim victim) {
+        return userDao.deleteById(victim.user.getId());
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
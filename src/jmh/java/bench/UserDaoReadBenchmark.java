@@ -0,0 +1,102 @@
+package bench;
+
+import dao.UserDao;
+import dao.UserDaoImpl;
+import model.User;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.HibernateUtil;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение методов чтения {@link UserDaoImpl}, работающих через сессию только для чтения,
+ * с прежним вариантом через обычную сессию ({@code stateful_*}).
+ *
+ * <p>Кэш второго уровня выключен, чтобы каждый вызов доходил до базы. Расход памяти на вызов
+ * показывает профилировщик GC: {@code -Djmh.args="UserDaoReadBenchmark -prof gc"}
+ * (строка {@code gc.alloc.rate.norm}).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDaoReadBenchmark {
+
+    private static final String PAGE_QUERY = "FROM User u WHERE u.id > :afterId ORDER BY u.id";
+
+    @Param({"10000"})
+    public int tableSize;
+
+    @Param({"500"})
+    public int pageSize;
+
+    private UserDao userDao;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties settings = new Properties();
+        settings.setProperty("hibernate.cache.use_second_level_cache", "false");
+        BenchDatabase.start(settings);
+        userDao = new UserDaoImpl();
+        ids = BenchDatabase.fill(tableSize, "read-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public User stateful_findById() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.find(User.class, randomId());
+        }
+    }
+
+    @Benchmark
+    public User readOnly_findById() {
+        return userDao.findById(randomId());
+    }
+
+    @Benchmark
+    public List<User> stateful_findPage() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery(PAGE_QUERY, User.class)
+                    .setParameter("afterId", randomAfterId())
+                    .setMaxResults(pageSize)
+                    .list();
+        }
+    }
+
+    @Benchmark
+    public List<User> readOnly_findPage() {
+        return userDao.findPage(randomAfterId(), pageSize);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private long randomAfterId() {
+        return ids[ThreadLocalRandom.current().nextInt(Math.max(1, ids.length - pageSize))];
+    }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import lombok.extern.slf4j.Slf4j;
+import model.User;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.HibernateUtil;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость {@code flush()} сессии, в которой загружено {@code loaded} сущностей и изменено {@code changed} из них.
+ *
+ * <p>Без байткод-улучшения Hibernate при flush сравнивает каждое загруженное поле со снимком,
+ * поэтому время растёт с числом загруженных сущностей. С улучшением ({@code SelfDirtinessTracker})
+ * проверяются только сущности, отметившие себя изменёнными. Для сравнения бенчмарк запускается
+ * дважды: обычной сборкой и сборкой с {@code -Dhibernate.enhance.skip}.</p>
+ *
+ * <p>Загрузка сущностей и откат транзакции выполняются вне замера, в {@link Level#Invocation}.</p>
+ */
+@Slf4j
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserFlushBenchmark {
+
+    @Param({"1000", "10000"})
+    public int loaded;
+
+    @Param({"0", "10", "100"})
+    public int changed;
+
+    private Session session;
+    private Transaction tx;
+    private List<User> users;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties settings = new Properties();
+        settings.setProperty("hibernate.cache.use_second_level_cache", "false");
+        BenchDatabase.start(settings);
+        BenchDatabase.fill(loaded, "flush-");
+        log.info("Байткод-улучшение User: {}", SelfDirtinessTracker.class.isAssignableFrom(User.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void load() {
+        session = HibernateUtil.getSessionFactory().openSession();
+        tx = session.beginTransaction();
+        users = session.createQuery("FROM User u ORDER BY u.id", User.class)
+                .setMaxResults(loaded)
+                .list();
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        tx.rollback();
+        session.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        round++;
+        for (int i = 0; i < changed; i++) {
+            users.get(i * (loaded / Math.max(1, changed))).setAge(18 + (round + i) % 60);
+        }
+        session.flush();
+    }
+}
@@ -0,0 +1,118 @@
+package bench;
+
+import dao.UserDaoImpl;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import service.UserService;
+import service.UserServiceImpl;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускная способность {@link UserServiceImpl} при конкурентном доступе из 1, 4, 16 и 64 потоков.
+ * Размер пула соединений задаётся {@code -Dbench.pool.maxSize} (по умолчанию 32).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceContentionBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private UserService userService;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties settings = new Properties();
+        settings.setProperty("hibernate.cache.use_second_level_cache", "false");
+        BenchDatabase.start(settings);
+        userService = new UserServiceImpl(new UserDaoImpl());
+        ids = BenchDatabase.fill(TABLE_SIZE, "seed-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User read_1() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User read_4() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public User read_16() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public User read_64() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write_1() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void write_4() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void write_16() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void write_64() {
+        write();
+    }
+
+    private User read() {
+        return userService.getUserById(randomId());
+    }
+
+    private void write() {
+        long n = sequence.incrementAndGet();
+        userService.updateUser(randomId(), "Name-" + n, "contention-" + n + "@bench.local", (int) (n % 80));
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
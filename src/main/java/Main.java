@@ -1,29 +1,90 @@
+import cache.OffHeapUserCache;
+import dao.AgeStats;
+import dao.ExportFormat;
+import dao.ImportResult;
+import dao.InstrumentedUserDao;
+import dao.TimeBucket;
+import dao.UserCsvImporter;
 import dao.UserDaoImpl;
+import dao.UserExporter;
+import dao.UserSearch;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import model.User;
+import model.UserSummary;
 import service.UserService;
 import service.UserServiceImpl;
+import util.AppMetrics;
+import util.CacheRegionStats;
+import util.ConnectionPoolStats;
 import util.HibernateUtil;
+import util.RetryPolicy;
+import util.SchemaMigrations;
 
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
+    private static final int LIST_PAGE_SIZE = 500;
+    private static final int USER_CACHE_CAPACITY = 1_000_000;
+
     private static final Scanner scanner = new Scanner(System.in);
-    private static final UserService userService = new UserServiceImpl(new UserDaoImpl());
+    private static final OffHeapUserCache userCache = new OffHeapUserCache(USER_CACHE_CAPACITY);
+    private static final UserService userService = new UserServiceImpl(
+            new InstrumentedUserDao(new UserDaoImpl(), AppMetrics.registry()),
+            RetryPolicy.DEFAULT, AppMetrics.registry(), userCache);
 
+    /**
+     * Аргументы запуска:
+     * <ul>
+     *   <li>{@code --fast} — быстрый запуск без миграций и проверки схемы (см. {@link HibernateUtil#FAST_STARTUP});</li>
+     *   <li>{@code --init-only} — только инициализировать Hibernate, вывести длительность этапов и завершиться
+     *   (используется для записи архива CDS, см. профиль {@code appcds} в {@code pom.xml}).</li>
+     * </ul>
+     *
+     * <p>Запуск с архивом CDS, записанным {@code mvn -Pappcds package}:</p>
+     * <pre>{@code
+     * java -XX:SharedArchiveFile=target/users-app.jsa -cp "$(cat target/appcds-classpath.txt)" Main --fast
+     * }</pre>
+     */
     public static void main(String[] args) {
+        Set<String> options = Set.of(args);
         Properties properties = new Properties();
         properties.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
         properties.setProperty("hibernate.connection.url", "jdbc:postgresql://localhost:5432/userdb");
         properties.setProperty("hibernate.connection.username", "postgres");
         properties.setProperty("hibernate.connection.password", "228359");
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        properties.setProperty("pool.enabled", "true");
+        properties.setProperty("pool.maxSize", "10");
+        properties.setProperty("pool.leakDetectionThresholdMs", "60000");
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("metrics.enabled", "true");
+        properties.setProperty("metrics.jmx.enabled", "true");
+        if (options.contains("--fast")) {
+            properties.setProperty(HibernateUtil.FAST_STARTUP, "true");
+        } else {
+            properties.setProperty(SchemaMigrations.ENABLED, "true");
+        }
 
+        AppMetrics.addRegistry(new SimpleMeterRegistry());
+        userCache.bindTo(AppMetrics.registry());
         HibernateUtil.init(properties);
 
+        if (options.contains("--init-only")) {
+            System.out.println("Инициализация: " + HibernateUtil.getBootstrapTimings());
+            HibernateUtil.shutdown();
+            return;
+        }
+
         while (true) {
             System.out.println("\n--- Меню ---");
             System.out.println("1. Создать пользователя");
@@ -31,6 +92,13 @@ public class Main {
             System.out.println("3. Обновить пользователя");
             System.out.println("4. Удалить пользователя");
             System.out.println("5. Показать всех пользователей");
+            System.out.println("6. Статистика пула соединений");
+            System.out.println("7. Статистика кэша");
+            System.out.println("8. Найти пользователя по email");
+            System.out.println("9. Импорт пользователей из CSV");
+            System.out.println("10. Выгрузка пользователей в CSV/NDJSON");
+            System.out.println("11. Метрики операций DAO");
+            System.out.println("12. Статистика пользователей");
             System.out.println("0. Выход");
             System.out.print("Выбор: ");
 
@@ -40,6 +108,13 @@ public class Main {
                 case "3" -> updateUser();
                 case "4" -> deleteUser();
                 case "5" -> listUsers();
+                case "6" -> showPoolStats();
+                case "7" -> showCacheStats();
+                case "8" -> findUserByEmail();
+                case "9" -> importUsers();
+                case "10" -> exportUsers();
+                case "11" -> showDaoMetrics();
+                case "12" -> showUserStats();
                 case "0" -> {
                     System.out.println("Выход.");
                     return;
@@ -81,6 +156,20 @@ public class Main {
         }
     }
 
+    private static void findUserByEmail() {
+        System.out.print("Email: ");
+        String email = scanner.nextLine();
+
+        try {
+            User user = userService.getUserByEmailIgnoreCase(email);
+            System.out.println("Найден: " + user);
+        } catch (NoSuchElementException e) {
+            System.out.println("Пользователь не найден.");
+        } catch (Exception e) {
+            System.out.println("Ошибка: " + e.getMessage());
+        }
+    }
+
     private static void updateUser() {
         System.out.print("ID пользователя для обновления: ");
         Long id = Long.parseLong(scanner.nextLine());
@@ -119,11 +208,103 @@ public class Main {
     }
 
     private static void listUsers() {
-        List<User> users = userService.getAllUsers();
-        if (users.isEmpty()) {
+        long count = 0;
+        List<UserSummary> page = userService.getUserSummaries(null, LIST_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (UserSummary user : page) {
+                System.out.println(user.id() + ": " + user.name() + " <" + user.email() + ">");
+            }
+            count += page.size();
+            page = userService.getUserSummaries(page.getLast().id(), LIST_PAGE_SIZE);
+        }
+        if (count == 0) {
             System.out.println("Пользователей нет.");
+        }
+    }
+
+    private static void importUsers() {
+        System.out.print("Путь к CSV-файлу (name,email,age[,created_at]): ");
+        Path file = Path.of(scanner.nextLine());
+
+        try {
+            ImportResult result = new UserCsvImporter().importCsv(file,
+                    progress -> System.out.println("Обработано записей: " + progress.read()));
+            System.out.println("Импорт завершён. Добавлено: " + result.imported()
+                    + ", отклонено: " + result.rejected() + " (см. таблицу users_import_rejects).");
+        } catch (Exception e) {
+            System.out.println("Ошибка при импорте: " + e.getMessage());
+        }
+    }
+
+    private static void exportUsers() {
+        System.out.print("Путь к файлу (.csv, .ndjson, с суффиксом .gz — со сжатием): ");
+        Path file = Path.of(scanner.nextLine());
+        ExportFormat format = file.getFileName().toString().contains(".ndjson") ? ExportFormat.NDJSON : ExportFormat.CSV;
+
+        try {
+            long count = new UserExporter().export(file, format);
+            System.out.println("Выгружено пользователей: " + count);
+        } catch (Exception e) {
+            System.out.println("Ошибка при выгрузке: " + e.getMessage());
+        }
+    }
+
+    private static void showPoolStats() {
+        ConnectionPoolStats stats = HibernateUtil.getPoolStats();
+        if (stats == null) {
+            System.out.println("Пул соединений не включён.");
+        } else {
+            System.out.println(stats);
+        }
+        HibernateUtil.getReplicaPoolStats().forEach((pool, replicaStats) ->
+                System.out.println(pool + ": " + replicaStats));
+    }
+
+    private static void showCacheStats() {
+        List<CacheRegionStats> stats = HibernateUtil.getCacheStatistics();
+        if (stats.isEmpty()) {
+            System.out.println("Кэш второго уровня не включён.");
         } else {
-            users.forEach(System.out::println);
+            stats.forEach(System.out::println);
+        }
+        System.out.println(userCache.stats() + ", вне кучи " + userCache.reservedBytes() / (1024 * 1024) + " МБ");
+    }
+
+    private static void showUserStats() {
+        AgeStats stats = userService.getAgeStats(null);
+        System.out.println("Всего пользователей: " + stats.count());
+        if (stats.count() == 0) {
+            return;
+        }
+        System.out.printf("Возраст: мин %d, макс %d, средний %.1f%n", stats.minAge(), stats.maxAge(), stats.avgAge());
+
+        System.out.println("Возраст по десятилетиям:");
+        userService.getAgeHistogram(null, 10).forEach(bucket ->
+                System.out.printf("  %d-%d: %d%n", bucket.fromAge(), bucket.fromAge() + 9, bucket.count()));
+
+        System.out.println("Регистрации за последние 7 дней:");
+        UserSearch lastWeek = UserSearch.builder().createdFrom(LocalDate.now().minusDays(6).atStartOfDay()).build();
+        userService.getSignups(lastWeek, TimeBucket.DAY).forEach(bucket ->
+                System.out.printf("  %s: %d%n", bucket.start().toLocalDate(), bucket.count()));
+    }
+
+    private static void showDaoMetrics() {
+        for (Timer timer : AppMetrics.registry().find(InstrumentedUserDao.TIMER).timers()) {
+            if (timer.count() == 0) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder()
+                    .append(timer.getId().getTag("method"))
+                    .append(": count=").append(timer.count())
+                    .append(", max=").append(String.format("%.2f", timer.max(TimeUnit.MILLISECONDS))).append("ms");
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                line.append(", p").append((int) (percentile.percentile() * 100)).append('=')
+                        .append(String.format("%.2f", percentile.value(TimeUnit.MILLISECONDS))).append("ms");
+            }
+            System.out.println(line);
         }
+        System.out.printf("Конфликты версий при обновлении: %.0f, отказов после всех попыток: %.0f%n",
+                AppMetrics.registry().counter(UserServiceImpl.UPDATE_CONFLICTS).count(),
+                AppMetrics.registry().counter(UserServiceImpl.UPDATE_RETRIES_EXHAUSTED).count());
     }
 }
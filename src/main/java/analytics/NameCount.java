@@ -0,0 +1,10 @@
+package analytics;
+
+/**
+ * Число пользователей с одним именем.
+ *
+ * @param name  имя
+ * @param count число пользователей
+ */
+public record NameCount(String name, long count) {
+}
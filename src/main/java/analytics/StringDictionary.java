@@ -0,0 +1,116 @@
+package analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Словарь строк столбца: строки хранятся один раз подряд в одном массиве байтов UTF-8,
+ * а строки таблицы ссылаются на них номером (кодом). На строку словаря приходится её длина в байтах
+ * и 4 байта смещения вместо отдельного объекта {@link String}.
+ */
+final class StringDictionary {
+
+    static final StringDictionary EMPTY = new Builder(false).build();
+
+    private final byte[] bytes;
+    private final int[] offsets;
+
+    private StringDictionary(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    String get(int code) {
+        return new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Отмечает строки словаря, начинающиеся с префикса. Префикс строки в UTF-8 — это префикс её байтов,
+     * поэтому строки не декодируются.
+     *
+     * @param prefix префикс
+     * @return признак совпадения для каждого кода словаря
+     */
+    boolean[] matchPrefix(String prefix) {
+        byte[] p = prefix.getBytes(StandardCharsets.UTF_8);
+        boolean[] matches = new boolean[size()];
+        for (int code = 0; code < matches.length; code++) {
+            int start = offsets[code];
+            matches[code] = offsets[code + 1] - start >= p.length
+                    && Arrays.equals(bytes, start, start + p.length, p, 0, p.length);
+        }
+        return matches;
+    }
+
+    long estimatedBytes() {
+        return bytes.length + 4L * offsets.length;
+    }
+
+    /**
+     * Построитель словаря. С {@code dedupe = true} одинаковые строки получают один код (для столбцов
+     * с повторами, например имени); без него каждая строка добавляется заново и хэш-таблица не нужна
+     * (для уникальных значений, например email).
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> codes;
+        private byte[] bytes = new byte[1024];
+        private int length;
+        private int[] offsets = new int[65];
+        private int size;
+
+        Builder(boolean dedupe) {
+            this.codes = dedupe ? new HashMap<>() : null;
+        }
+
+        /**
+         * Создаёт построитель, продолжающий существующий словарь: прежние коды сохраняются.
+         */
+        static Builder from(StringDictionary base, boolean dedupe) {
+            Builder builder = new Builder(dedupe);
+            builder.bytes = Arrays.copyOf(base.bytes, Math.max(1024, base.bytes.length + base.bytes.length / 4));
+            builder.length = base.bytes.length;
+            builder.offsets = Arrays.copyOf(base.offsets, Math.max(65, base.offsets.length + base.offsets.length / 4));
+            builder.size = base.size();
+            if (dedupe) {
+                for (int code = 0; code < builder.size; code++) {
+                    builder.codes.put(base.get(code), code);
+                }
+            }
+            return builder;
+        }
+
+        int add(String value) {
+            String string = Objects.requireNonNullElse(value, "");
+            if (codes != null) {
+                Integer code = codes.get(string);
+                if (code != null) {
+                    return code;
+                }
+                codes.put(string, size);
+            }
+            byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+            offsets[++size] = length;
+            return size - 1;
+        }
+
+        StringDictionary build() {
+            return new StringDictionary(Arrays.copyOf(bytes, length), Arrays.copyOf(offsets, size + 1));
+        }
+    }
+}
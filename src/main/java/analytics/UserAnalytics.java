@@ -0,0 +1,135 @@
+package analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import util.HibernateUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Держит колоночный снимок пользователей ({@link UserColumns}) для аналитических запросов в памяти.
+ *
+ * <p>{@link #rebuild()} читает всю таблицу серверным курсором напрямую через JDBC, без сущностей
+ * {@code User}. {@link #refresh()} дочитывает только новые строки: с ID больше наибольшего в снимке
+ * или зарегистрированные не раньше, чем {@link #getOverlap() overlap} до самой поздней регистрации
+ * в снимке. Второе условие подхватывает строки с меньшим ID из транзакций, зафиксированных позже
+ * предыдущего обновления. Изменения и удаления существующих строк инкрементальное обновление
+ * не видит — для них нужен {@link #rebuild()}.</p>
+ *
+ * <p>Снимок неизменяем и подменяется целиком, поэтому {@link #snapshot()} можно читать из любых
+ * потоков без блокировок; обновления выполняются по одному.</p>
+ */
+@Slf4j
+public class UserAnalytics {
+
+    static final int FETCH_SIZE = 10_000;
+    static final Duration DEFAULT_OVERLAP = Duration.ofMinutes(5);
+
+    private static final String SELECT_ALL =
+            "SELECT id, name, email, age, created_at FROM users ORDER BY id";
+    private static final String SELECT_NEW =
+            "SELECT id, name, email, age, created_at FROM users WHERE id > ? OR created_at >= ? ORDER BY id";
+
+    private final Duration overlap;
+    private volatile UserColumns snapshot = UserColumns.EMPTY;
+
+    public UserAnalytics() {
+        this(DEFAULT_OVERLAP);
+    }
+
+    /**
+     * @param overlap насколько раньше самой поздней регистрации в снимке перечитывать строки при обновлении
+     */
+    public UserAnalytics(Duration overlap) {
+        if (overlap == null || overlap.isNegative()) {
+            throw new IllegalArgumentException("Перекрытие не должно быть отрицательным");
+        }
+        this.overlap = overlap;
+    }
+
+    /**
+     * @return текущий снимок; пустой, пока не вызван {@link #rebuild()} или {@link #refresh()}
+     */
+    public UserColumns snapshot() {
+        return snapshot;
+    }
+
+    public Duration getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * Перечитывает всю таблицу и заменяет снимок.
+     *
+     * @return новый снимок
+     */
+    public synchronized UserColumns rebuild() {
+        long start = System.nanoTime();
+        UserColumns loaded = load(null, null);
+        snapshot = loaded;
+        log.info("Аналитический снимок построен: {} пользователей, ~{} КБ, {} мс", loaded.size(),
+                loaded.estimatedBytes() / 1024, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return loaded;
+    }
+
+    /**
+     * Дочитывает новые строки и добавляет их к снимку. Пустой снимок строится заново.
+     *
+     * @return новый снимок
+     */
+    public synchronized UserColumns refresh() {
+        UserColumns current = snapshot;
+        if (current.size() == 0) {
+            return rebuild();
+        }
+        LocalDateTime watermark = current.maxCreatedAt().minus(overlap);
+        UserColumns batch = load(current.maxId(), watermark);
+        UserColumns merged = current.merge(batch);
+        snapshot = merged;
+        log.debug("Аналитический снимок обновлён: прочитано {}, добавлено {}", batch.size(),
+                merged.size() - current.size());
+        return merged;
+    }
+
+    private UserColumns load(Long afterId, LocalDateTime createdFrom) {
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.doReturningWork(connection -> read(connection, afterId, createdFrom));
+        }
+    }
+
+    private static UserColumns read(Connection connection, Long afterId, LocalDateTime createdFrom)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        // Курсор PostgreSQL с fetchSize работает только вне режима autocommit
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(afterId == null ? SELECT_ALL : SELECT_NEW,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            if (afterId != null) {
+                statement.setLong(1, afterId);
+                statement.setObject(2, createdFrom);
+            }
+            UserColumns.Builder builder = UserColumns.builder();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    builder.add(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                            rs.getObject(5, LocalDateTime.class));
+                }
+            }
+            connection.commit();
+            return builder.build();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            log.error("Ошибка при чтении пользователей для аналитического снимка", e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package analytics;
+
+import dao.AgeBucket;
+import dao.AgeStats;
+import dao.SignupBucket;
+import dao.TimeBucket;
+import dao.UserSearch;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемый колоночный снимок таблицы {@code users} для аналитики в памяти.
+ *
+ * <p>Каждый столбец — массив примитивов: {@code long[]} ID, {@code int[]} возраст, {@code long[]} время
+ * регистрации в секундах эпохи (UTC), а имя и email закодированы номерами в словарях ({@link StringDictionary}).
+ * Строки упорядочены по ID. На пользователя приходится несколько десятков байт против сотен байт
+ * для сущности {@code User} в контексте персистентности.</p>
+ *
+ * <p>Операторы принимают те же условия {@link UserSearch} и возвращают те же типы, что и агрегаты
+ * {@code UserDao}; время сравнивается с точностью до секунды. Снимок большого размера обходится
+ * параллельно, кусками в общем пуле {@code ForkJoinPool}. Условия отбора вычисляются без ветвлений
+ * (см. {@link #mask(Bounds, int, long, int)}), поэтому на случайных данных нет промахов предсказателя
+ * переходов. Столбцы перед циклом копируются в локальные переменные, чтобы JIT вынес их загрузку из цикла
+ * и мог развернуть и векторизовать его.</p>
+ */
+public final class UserColumns {
+
+    static final UserColumns EMPTY = builder().build();
+
+    static final int MIN_CHUNK = 1 << 16;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final long[] ids;
+    private final int[] ages;
+    private final long[] createdAt;
+    private final int[] nameCodes;
+    private final int[] emailCodes;
+    private final StringDictionary names;
+    private final StringDictionary emails;
+    private final int size;
+    private final int minAge;
+    private final int maxAge;
+    private final long minCreatedAt;
+    private final long maxCreatedAt;
+
+    private UserColumns(long[] ids, int[] ages, long[] createdAt, int[] nameCodes, int[] emailCodes,
+                        StringDictionary names, StringDictionary emails) {
+        this.ids = ids;
+        this.ages = ages;
+        this.createdAt = createdAt;
+        this.nameCodes = nameCodes;
+        this.emailCodes = emailCodes;
+        this.names = names;
+        this.emails = emails;
+        this.size = ids.length;
+
+        int minA = Integer.MAX_VALUE;
+        int maxA = Integer.MIN_VALUE;
+        long minT = Long.MAX_VALUE;
+        long maxT = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minA = Math.min(minA, ages[i]);
+            maxA = Math.max(maxA, ages[i]);
+            minT = Math.min(minT, createdAt[i]);
+            maxT = Math.max(maxT, createdAt[i]);
+        }
+        this.minAge = minA;
+        this.maxAge = maxA;
+        this.minCreatedAt = minT;
+        this.maxCreatedAt = maxT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return число пользователей в снимке
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return наибольший ID в снимке, или {@code null}, если снимок пуст
+     */
+    public Long maxId() {
+        return size == 0 ? null : ids[size - 1];
+    }
+
+    /**
+     * @return наибольшее время регистрации в снимке, или {@code null}, если снимок пуст
+     */
+    public LocalDateTime maxCreatedAt() {
+        return size == 0 ? null : LocalDateTime.ofEpochSecond(maxCreatedAt, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * @return приблизительный объём памяти, занятый столбцами и словарями, в байтах
+     */
+    public long estimatedBytes() {
+        return 8L * size + 4L * size + 8L * size + 4L * size + 4L * size
+                + names.estimatedBytes() + emails.estimatedBytes();
+    }
+
+    /**
+     * @param filter условия; {@code null} — все пользователи
+     * @return число подходящих пользователей
+     */
+    public long count(UserSearch filter) {
+        Bounds b = bounds(filter);
+        return scan(() -> new long[1], (acc, from, to) -> {
+            long n = 0;
+            int[] ageColumn = ages;
+            long[] timeColumn = createdAt;
+            int[] nameColumn = nameCodes;
+            for (int i = from; i < to; i++) {
+                n += mask(b, ageColumn[i], timeColumn[i], nameColumn[i]);
+            }
+            acc[0] += n;
+        }, UserColumns::sum)[0];
+    }
+
+    /**
+     * @param filter условия; {@code null} — все пользователи
+     * @return число, минимальный, максимальный и средний возраст подходящих пользователей
+     */
+    public AgeStats ageStats(UserSearch filter) {
+        Bounds b = bounds(filter);
+        long[] acc = scan(() -> new long[]{0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE}, (a, from, to) -> {
+            long n = 0;
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int[] ageColumn = ages;
+            long[] timeColumn = createdAt;
+            int[] nameColumn = nameCodes;
+            for (int i = from; i < to; i++) {
+                int match = mask(b, ageColumn[i], timeColumn[i], nameColumn[i]);
+                int age = ageColumn[i];
+                n += match;
+                sum += age & -match;
+                // неподходящая строка подставляет нейтральное значение: MAX_VALUE для min, MIN_VALUE для max
+                min = Math.min(min, (age & -match) | ((match - 1) & Integer.MAX_VALUE));
+                max = Math.max(max, (age & -match) | ((match - 1) & Integer.MIN_VALUE));
+            }
+            a[0] += n;
+            a[1] += sum;
+            a[2] = Math.min(a[2], min);
+            a[3] = Math.max(a[3], max);
+        }, (x, y) -> new long[]{x[0] + y[0], x[1] + y[1], Math.min(x[2], y[2]), Math.max(x[3], y[3])});
+        if (acc[0] == 0) {
+            return new AgeStats(0, null, null, null);
+        }
+        return new AgeStats(acc[0], (int) acc[2], (int) acc[3], (double) acc[1] / acc[0]);
+    }
+
+    /**
+     * @param filter      условия; {@code null} — все пользователи
+     * @param bucketWidth ширина столбца, лет
+     * @return непустые столбцы гистограммы возрастов по возрастанию
+     */
+    public List<AgeBucket> ageHistogram(UserSearch filter, int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина столбца должна быть положительной");
+        }
+        if (size == 0) {
+            return List.of();
+        }
+        Bounds b = bounds(filter);
+        int offset = Math.floorDiv(minAge, bucketWidth);
+        int buckets = Math.floorDiv(maxAge, bucketWidth) - offset + 1;
+        // номер столбца для каждого возраста считается заранее, чтобы не делить в цикле
+        int[] bucketOfAge = new int[maxAge - minAge + 1];
+        for (int age = minAge; age <= maxAge; age++) {
+            bucketOfAge[age - minAge] = Math.floorDiv(age, bucketWidth) - offset;
+        }
+        long[] counts = scan(() -> new long[buckets], (acc, from, to) -> {
+            int[] ageColumn = ages;
+            long[] timeColumn = createdAt;
+            int[] nameColumn = nameCodes;
+            for (int i = from; i < to; i++) {
+                int age = ageColumn[i];
+                acc[bucketOfAge[age - minAge]] += mask(b, age, timeColumn[i], nameColumn[i]);
+            }
+        }, UserColumns::sum);
+
+        List<AgeBucket> histogram = new ArrayList<>();
+        for (int i = 0; i < buckets; i++) {
+            if (counts[i] > 0) {
+                histogram.add(new AgeBucket((offset + i) * bucketWidth, counts[i]));
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Считает регистрации по часам или дням, а недели (с понедельника) и месяцы собирает из дней,
+     * так же как {@code date_trunc} в PostgreSQL.
+     *
+     * @param filter условия; {@code null} — все пользователи
+     * @param bucket интервал группировки
+     * @return непустые интервалы по возрастанию времени
+     */
+    public List<SignupBucket> signups(UserSearch filter, TimeBucket bucket) {
+        if (bucket == null) {
+            throw new IllegalArgumentException("Интервал группировки не должен быть null");
+        }
+        if (size == 0) {
+            return List.of();
+        }
+        Bounds b = bounds(filter);
+        long unit = bucket == TimeBucket.HOUR ? 3_600 : 86_400;
+        long offset = Math.floorDiv(minCreatedAt, unit);
+        int slots = Math.toIntExact(Math.floorDiv(maxCreatedAt, unit) - offset + 1);
+        long origin = offset * unit;
+        // деление на константу JIT заменяет умножением, деление на переменную в цикле намного дороже
+        long[] counts = scan(() -> new long[slots], bucket == TimeBucket.HOUR
+                ? (acc, from, to) -> {
+                    int[] ageColumn = ages;
+                    long[] timeColumn = createdAt;
+                    int[] nameColumn = nameCodes;
+                    for (int i = from; i < to; i++) {
+                        long time = timeColumn[i];
+                        acc[(int) ((time - origin) / 3_600)] += mask(b, ageColumn[i], time, nameColumn[i]);
+                    }
+                }
+                : (acc, from, to) -> {
+                    int[] ageColumn = ages;
+                    long[] timeColumn = createdAt;
+                    int[] nameColumn = nameCodes;
+                    for (int i = from; i < to; i++) {
+                        long time = timeColumn[i];
+                        acc[(int) ((time - origin) / 86_400)] += mask(b, ageColumn[i], time, nameColumn[i]);
+                    }
+                }, UserColumns::sum);
+
+        Map<LocalDateTime, Long> byStart = new TreeMap<>();
+        for (int i = 0; i < slots; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            LocalDateTime slotStart = LocalDateTime.ofEpochSecond((offset + i) * unit, 0, ZoneOffset.UTC);
+            LocalDate day = slotStart.toLocalDate();
+            LocalDateTime start = switch (bucket) {
+                case HOUR, DAY -> slotStart;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+                case MONTH -> day.withDayOfMonth(1).atStartOfDay();
+            };
+            byStart.merge(start, counts[i], Long::sum);
+        }
+        return byStart.entrySet().stream()
+                .map(entry -> new SignupBucket(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Группирует пользователей по имени. Группировка идёт по кодам словаря, строки не сравниваются.
+     *
+     * @param filter условия; {@code null} — все пользователи
+     * @param limit  сколько самых частых имён вернуть
+     * @return имена по убыванию числа пользователей
+     */
+    public List<NameCount> topNames(UserSearch filter, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Число имён должно быть положительным");
+        }
+        Bounds b = bounds(filter);
+        int dictionarySize = names.size();
+        long[] counts = scan(() -> new long[dictionarySize], (acc, from, to) -> {
+            int[] ageColumn = ages;
+            long[] timeColumn = createdAt;
+            int[] nameColumn = nameCodes;
+            for (int i = from; i < to; i++) {
+                int code = nameColumn[i];
+                acc[code] += mask(b, ageColumn[i], timeColumn[i], code);
+            }
+        }, UserColumns::sum);
+
+        return IntStream.range(0, dictionarySize)
+                .filter(code -> counts[code] > 0)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(code -> counts[code]).reversed())
+                .limit(limit)
+                .map(code -> new NameCount(names.get(code), counts[code]))
+                .toList();
+    }
+
+    /**
+     * @param filter условия; {@code null} — все пользователи
+     * @param limit  наибольшее число ID
+     * @return ID подходящих пользователей по возрастанию
+     */
+    public long[] ids(UserSearch filter, int limit) {
+        Bounds b = bounds(filter);
+        long[] result = new long[Math.min(limit, size)];
+        int found = 0;
+        for (int i = 0; i < size && found < result.length; i++) {
+            if (mask(b, ages[i], createdAt[i], nameCodes[i]) != 0) {
+                result[found++] = ids[i];
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * @param id ID пользователя
+     * @return email пользователя, или {@code null}, если его нет в снимке
+     */
+    public String emailOf(long id) {
+        int row = Arrays.binarySearch(ids, id);
+        return row < 0 ? null : emails.get(emailCodes[row]);
+    }
+
+    /**
+     * Добавляет к снимку строки другого снимка (например, прочитанные при обновлении). Строки с ID,
+     * которые уже есть в этом снимке, пропускаются; порядок по ID сохраняется.
+     *
+     * @param batch новые строки
+     * @return новый снимок; этот снимок не меняется
+     */
+    UserColumns merge(UserColumns batch) {
+        if (batch.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return batch;
+        }
+
+        boolean[] fresh = new boolean[batch.size];
+        int added = 0;
+        for (int j = 0; j < batch.size; j++) {
+            fresh[j] = Arrays.binarySearch(ids, batch.ids[j]) < 0;
+            added += fresh[j] ? 1 : 0;
+        }
+        if (added == 0) {
+            return this;
+        }
+
+        StringDictionary.Builder nameBuilder = StringDictionary.Builder.from(names, true);
+        StringDictionary.Builder emailBuilder = StringDictionary.Builder.from(emails, false);
+        int total = size + added;
+        long[] mIds = new long[total];
+        int[] mAges = new int[total];
+        long[] mCreatedAt = new long[total];
+        int[] mNames = new int[total];
+        int[] mEmails = new int[total];
+
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            while (j < batch.size && !fresh[j]) {
+                j++;
+            }
+            if (j >= batch.size || (i < size && ids[i] < batch.ids[j])) {
+                mIds[k] = ids[i];
+                mAges[k] = ages[i];
+                mCreatedAt[k] = createdAt[i];
+                mNames[k] = nameCodes[i];
+                mEmails[k] = emailCodes[i];
+                i++;
+            } else {
+                mIds[k] = batch.ids[j];
+                mAges[k] = batch.ages[j];
+                mCreatedAt[k] = batch.createdAt[j];
+                mNames[k] = nameBuilder.add(batch.names.get(batch.nameCodes[j]));
+                mEmails[k] = emailBuilder.add(batch.emails.get(batch.emailCodes[j]));
+                j++;
+            }
+        }
+        return new UserColumns(mIds, mAges, mCreatedAt, mNames, mEmails, nameBuilder.build(), emailBuilder.build());
+    }
+
+    /**
+     * Проверяет строку без ветвлений: каждое сравнение {@code x >= y} записано как знаковый бит {@code y - x - 1}.
+     * Разности не переполняются, потому что границы в {@link #bounds(UserSearch)} прижаты к диапазону данных.
+     *
+     * @return 1, если строка подходит под условия, иначе 0
+     */
+    private static int mask(Bounds b, int age, long time, int nameCode) {
+        int match = ((b.minAge - age - 1) >>> 31) & ((age - b.maxAge - 1) >>> 31)
+                & (int) ((b.from - time - 1) >>> 63) & (int) ((time - b.before) >>> 63);
+        return b.nameMask == null ? match : match & b.nameMask[nameCode];
+    }
+
+    private Bounds bounds(UserSearch filter) {
+        UserSearch f = filter == null ? UserSearch.ALL : filter;
+        int[] nameMask = null;
+        if (f.namePrefix() != null) {
+            boolean[] matches = names.matchPrefix(f.namePrefix());
+            nameMask = new int[matches.length];
+            for (int code = 0; code < matches.length; code++) {
+                nameMask[code] = matches[code] ? 1 : 0;
+            }
+        }
+        if (size == 0) {
+            return new Bounds(0, 0, 0, 0, nameMask);
+        }
+        return new Bounds(
+                f.minAge() == null ? minAge : Math.clamp(f.minAge(), minAge, maxAge + 1),
+                f.maxAge() == null ? maxAge : Math.clamp(f.maxAge(), minAge - 1, maxAge),
+                f.createdFrom() == null ? minCreatedAt
+                        : Math.clamp(f.createdFrom().toEpochSecond(ZoneOffset.UTC), minCreatedAt, maxCreatedAt + 1),
+                f.createdBefore() == null ? maxCreatedAt + 1
+                        : Math.clamp(f.createdBefore().toEpochSecond(ZoneOffset.UTC), minCreatedAt, maxCreatedAt + 1),
+                nameMask);
+    }
+
+    /**
+     * Обходит строки кусками: каждый кусок накапливает результат в своём аккумуляторе,
+     * затем аккумуляторы объединяются. Маленький снимок обходится в текущем потоке.
+     */
+    private <A> A scan(Supplier<A> identity, ChunkScan<A> chunkScan, BinaryOperator<A> combiner) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunk = Math.max(MIN_CHUNK, (size + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        int chunks = (size + chunk - 1) / chunk;
+        if (chunks <= 1) {
+            A acc = identity.get();
+            chunkScan.scan(acc, 0, size);
+            return acc;
+        }
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    A acc = identity.get();
+                    chunkScan.scan(acc, c * chunk, Math.min(size, (c + 1) * chunk));
+                    return acc;
+                })
+                .reduce(combiner)
+                .orElseGet(identity);
+    }
+
+    private static long[] sum(long[] x, long[] y) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] += y[i];
+        }
+        return x;
+    }
+
+    @FunctionalInterface
+    private interface ChunkScan<A> {
+        void scan(A acc, int from, int to);
+    }
+
+    /**
+     * Условия {@link UserSearch}, приведённые к границам по столбцам: возраст {@code [minAge, maxAge]},
+     * время {@code [from, before)}, {@code nameMask} — 1 для подходящих кодов имени или {@code null}.
+     */
+    private record Bounds(int minAge, int maxAge, long from, long before, int[] nameMask) {
+    }
+
+    /**
+     * Построитель снимка. Строки добавляются по возрастанию ID.
+     */
+    public static final class Builder {
+
+        private long[] ids = new long[1024];
+        private int[] ages = new int[1024];
+        private long[] createdAt = new long[1024];
+        private int[] nameCodes = new int[1024];
+        private int[] emailCodes = new int[1024];
+        private final StringDictionary.Builder names = new StringDictionary.Builder(true);
+        private final StringDictionary.Builder emails = new StringDictionary.Builder(false);
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(long id, String name, String email, int age, LocalDateTime created) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Строки должны добавляться по возрастанию ID: " + id);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                emailCodes = Arrays.copyOf(emailCodes, capacity);
+            }
+            ids[size] = id;
+            ages[size] = age;
+            createdAt[size] = created.toEpochSecond(ZoneOffset.UTC);
+            nameCodes[size] = names.add(name);
+            emailCodes[size] = emails.add(email);
+            size++;
+            return this;
+        }
+
+        public UserColumns build() {
+            return new UserColumns(Arrays.copyOf(ids, size), Arrays.copyOf(ages, size),
+                    Arrays.copyOf(createdAt, size), Arrays.copyOf(nameCodes, size), Arrays.copyOf(emailCodes, size),
+                    names.build(), emails.build());
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import model.User;
+import util.CacheRegionStats;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэш пользователей по ID вне кучи Java: данные лежат в памяти {@link MemorySegment}, а не в объектах,
+ * поэтому даже десятки миллионов записей не увеличивают работу сборщика мусора.
+ *
+ * <p>Устройство:</p>
+ * <ul>
+ *   <li>Каждый пользователь занимает слот фиксированного размера ({@value #DEFAULT_SLOT_SIZE} байт по умолчанию)
+ *   в слэбе по {@value #SLOTS_PER_SLAB} слотов. Слэбы выделяются по мере заполнения кэша. В слоте записаны
+ *   ID, версия, время регистрации, возраст, а за ними имя и email в UTF-8. Пользователь, не помещающийся
+ *   в слот, не кэшируется.</li>
+ *   <li>Индекс ID → слот — хэш-таблица с открытой адресацией и линейным пробированием, тоже вне кучи.
+ *   Таблица заполнена не более чем на 3/4, удаление сдвигает следующие записи назад, без «надгробий».</li>
+ *   <li>Когда свободных слотов нет, слот освобождается по алгоритму CLOCK: стрелка обходит слоты, снимает
+ *   признак обращения, выставленный чтением, и вытесняет первый слот без него.</li>
+ *   <li>Чтение не берёт блокировок. Каждый слот защищён счётчиком-seqlock: запись делает его нечётным
+ *   на время изменения, а чтение проверяет, что счётчик чётный и не изменился, пока копировались данные.
+ *   Если чтение совпало с записью, оно считается промахом. Изменения выполняются под одной блокировкой.</li>
+ * </ul>
+ *
+ * <p>Чтобы параллельное чтение из БД не вернуло в кэш устаревшие данные, загрузка оформляется парой
+ * {@link #beginLoad(long)} и {@link #putLoaded(User, long)}: запись отклоняется, если с начала загрузки
+ * была инвалидация в полосе этого ID. Инвалидации считаются отдельно для {@value #INVALIDATION_STRIPES}
+ * полос по хэшу ID, поэтому инвалидация одного пользователя не отклоняет загрузки остальных.
+ * {@link #invalidate(long)} нужно вызывать после фиксации изменения в БД.</p>
+ *
+ * <p>После {@link #close()} память освобождается, и кэшем пользоваться нельзя.</p>
+ */
+@Slf4j
+public final class OffHeapUserCache implements MeterBinder, AutoCloseable {
+
+    /**
+     * Имя кэша в статистике и метриках.
+     */
+    public static final String REGION = "users-offheap";
+
+    public static final int DEFAULT_SLOT_SIZE = 128;
+
+    static final int SLOTS_PER_SLAB = 1 << 16;
+
+    static final int INVALIDATION_STRIPES = 64;
+
+    private static final String METRIC_PREFIX = "user.cache.offheap.";
+
+    // Раскладка слота
+    private static final long STAMP = 0;
+    private static final long ID = 8;
+    private static final long VERSION = 16;
+    private static final long CREATED_SECONDS = 24;
+    private static final long CREATED_NANOS = 32;
+    private static final long AGE = 36;
+    private static final long NAME_LENGTH = 40;
+    private static final long EMAIL_LENGTH = 42;
+    private static final long REFERENCED = 44;
+    private static final int HEADER_SIZE = 48;
+
+    private static final long NO_VERSION = Long.MIN_VALUE;
+    private static final int NO_CREATED_AT = -1;
+
+    // Запись индекса: ID (0 — пустая запись) и номер слота
+    private static final long INDEX_ENTRY_SIZE = 16;
+    private static final long EMPTY = 0;
+
+    private final Arena arena = Arena.ofShared();
+    private final int capacity;
+    private final int slotSize;
+    private final MemorySegment[] slabs;
+    private final MemorySegment index;
+    private final long indexMask;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int allocated;
+    private int hand;
+    private volatile int size;
+
+    /**
+     * @param capacity наибольшее число пользователей в кэше
+     */
+    public OffHeapUserCache(int capacity) {
+        this(capacity, DEFAULT_SLOT_SIZE);
+    }
+
+    /**
+     * @param capacity наибольшее число пользователей в кэше
+     * @param slotSize размер слота, байт; кратен 8. Имя и email вместе занимают до {@code slotSize - 48} байт UTF-8
+     */
+    public OffHeapUserCache(int capacity, int slotSize) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость кэша должна быть положительной");
+        }
+        if (slotSize < HEADER_SIZE + 8 || slotSize > Short.MAX_VALUE || slotSize % 8 != 0) {
+            throw new IllegalArgumentException("Размер слота должен быть кратен 8 и лежать в диапазоне "
+                    + (HEADER_SIZE + 8) + ".." + Short.MAX_VALUE + ": " + slotSize);
+        }
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+        this.slabs = new MemorySegment[(capacity + SLOTS_PER_SLAB - 1) / SLOTS_PER_SLAB];
+
+        long indexCapacity = Long.highestOneBit(Math.max(2, capacity + capacity / 3) * 2L - 1);
+        this.index = arena.allocate(indexCapacity * INDEX_ENTRY_SIZE, 8);
+        this.indexMask = indexCapacity - 1;
+        log.info("Кэш пользователей вне кучи: до {} записей по {} байт, индекс {} КБ",
+                capacity, slotSize, index.byteSize() / 1024);
+    }
+
+    /**
+     * Ищет пользователя в кэше. Не берёт блокировок.
+     *
+     * @param id ID пользователя
+     * @return новая копия пользователя, или {@code null}, если его нет в кэше
+     */
+    public User get(long id) {
+        if (id != EMPTY) {
+            long position = hash(id);
+            for (long probe = 0; probe <= indexMask; probe++) {
+                long key = index.get(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE);
+                if (key == EMPTY) {
+                    break;
+                }
+                if (key == id) {
+                    VarHandle.acquireFence();
+                    User user = read(slotAt(position), id);
+                    if (user != null) {
+                        hits.increment();
+                        return user;
+                    }
+                    break;
+                }
+                position = (position + 1) & indexMask;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Начинает загрузку пользователя из БД для последующего {@link #putLoaded(User, long)}.
+     *
+     * @param id ID загружаемого пользователя
+     * @return отметка, по которой {@link #putLoaded(User, long)} узнаёт о промежуточных инвалидациях этого ID
+     */
+    public long beginLoad(long id) {
+        return invalidations.get(stripe(id));
+    }
+
+    /**
+     * Помещает в кэш пользователя, прочитанного из БД, если после {@link #beginLoad(long)} он не
+     * инвалидировался (иначе прочитанные данные могли устареть).
+     *
+     * @param user      пользователь с ID
+     * @param loadStamp результат {@link #beginLoad(long)} для того же ID, полученный до чтения из БД
+     * @return {@code true}, если пользователь помещён в кэш
+     */
+    public boolean putLoaded(User user, long loadStamp) {
+        if (user == null || user.getId() == null || user.getId() == EMPTY) {
+            return false;
+        }
+        byte[] name = user.getName() == null ? new byte[0] : user.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.getEmail() == null ? new byte[0] : user.getEmail().getBytes(StandardCharsets.UTF_8);
+        if (HEADER_SIZE + name.length + email.length > slotSize) {
+            log.debug("Пользователь id={} не помещается в слот кэша ({} байт)", user.getId(), slotSize);
+            return false;
+        }
+
+        long id = user.getId();
+        writeLock.lock();
+        try {
+            if (invalidations.get(stripe(id)) != loadStamp) {
+                return false;
+            }
+            long position = find(id);
+            if (position >= 0) {
+                write(slotAt(position), id, user, name, email);
+            } else {
+                int slot = allocateSlot();
+                write(slot, id, user, name, email);
+                insert(id, slot);
+                size++;
+            }
+            puts.increment();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет пользователя из кэша. Вызывается после изменения или удаления пользователя в БД.
+     *
+     * @param id ID пользователя
+     */
+    public void invalidate(long id) {
+        writeLock.lock();
+        try {
+            invalidations.incrementAndGet(stripe(id));
+            long position = find(id);
+            if (position >= 0) {
+                int slot = slotAt(position);
+                remove(position);
+                free(slot);
+                size--;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет из кэша всех пользователей, например после массового изменения в обход сервиса.
+     */
+    public void clear() {
+        writeLock.lock();
+        try {
+            for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++) {
+                invalidations.incrementAndGet(stripe);
+            }
+            index.fill((byte) 0);
+            for (int slot = 0; slot < allocated; slot++) {
+                free(slot);
+            }
+            size = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return число пользователей в кэше
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return объём памяти вне кучи, выделенной под индекс и слэбы, байт
+     */
+    public long reservedBytes() {
+        long bytes = index.byteSize();
+        for (MemorySegment slab : slabs) {
+            bytes += slab == null ? 0 : slab.byteSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return статистика обращений к кэшу
+     */
+    public CacheRegionStats stats() {
+        return new CacheRegionStats(REGION, hits.sum(), misses.sum(), puts.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Публикует статистику кэша в реестре метрик под префиксом {@value #METRIC_PREFIX}.
+     *
+     * @param registry реестр метрик
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + "hits", hits, LongAdder::sum).register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + "misses", misses, LongAdder::sum).register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + "puts", puts, LongAdder::sum).register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + "evictions", evictions, LongAdder::sum).register(registry);
+        Gauge.builder(METRIC_PREFIX + "size", this, OffHeapUserCache::size).register(registry);
+        Gauge.builder(METRIC_PREFIX + "reserved", this, OffHeapUserCache::reservedBytes)
+                .baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * Освобождает память кэша.
+     */
+    @Override
+    public void close() {
+        arena.close();
+        log.info("Кэш пользователей вне кучи закрыт.");
+    }
+
+    /**
+     * Копирует пользователя из слота. Данные могут меняться во время копирования, поэтому длины строк
+     * проверяются до копирования, а результат отбрасывается, если счётчик слота изменился.
+     *
+     * @return пользователь, или {@code null}, если слот занят другим ID или изменялся во время чтения
+     */
+    private User read(int slot, long id) {
+        MemorySegment slab = slabs[slot / SLOTS_PER_SLAB];
+        if (slab == null) {
+            return null;
+        }
+        long base = (long) (slot % SLOTS_PER_SLAB) * slotSize;
+        long stamp = slab.get(ValueLayout.JAVA_LONG, base + STAMP);
+        VarHandle.acquireFence();
+        if ((stamp & 1) != 0 || slab.get(ValueLayout.JAVA_LONG, base + ID) != id) {
+            return null;
+        }
+        long version = slab.get(ValueLayout.JAVA_LONG, base + VERSION);
+        long createdSeconds = slab.get(ValueLayout.JAVA_LONG, base + CREATED_SECONDS);
+        int createdNanos = slab.get(ValueLayout.JAVA_INT, base + CREATED_NANOS);
+        int age = slab.get(ValueLayout.JAVA_INT, base + AGE);
+        int nameLength = slab.get(ValueLayout.JAVA_SHORT, base + NAME_LENGTH);
+        int emailLength = slab.get(ValueLayout.JAVA_SHORT, base + EMAIL_LENGTH);
+        if (nameLength < 0 || emailLength < 0 || HEADER_SIZE + nameLength + emailLength > slotSize) {
+            return null;
+        }
+        byte[] name = new byte[nameLength];
+        byte[] email = new byte[emailLength];
+        MemorySegment.copy(slab, ValueLayout.JAVA_BYTE, base + HEADER_SIZE, name, 0, nameLength);
+        MemorySegment.copy(slab, ValueLayout.JAVA_BYTE, base + HEADER_SIZE + nameLength, email, 0, emailLength);
+        VarHandle.acquireFence();
+        if (slab.get(ValueLayout.JAVA_LONG, base + STAMP) != stamp) {
+            return null;
+        }
+        if (slab.get(ValueLayout.JAVA_BYTE, base + REFERENCED) == 0) {
+            slab.set(ValueLayout.JAVA_BYTE, base + REFERENCED, (byte) 1);
+        }
+        if (createdNanos != NO_CREATED_AT && (createdNanos < 0 || createdNanos > 999_999_999)) {
+            return null;
+        }
+
+        return User.builder()
+                .id(id)
+                .name(new String(name, StandardCharsets.UTF_8))
+                .email(new String(email, StandardCharsets.UTF_8))
+                .age(age)
+                .createdAt(createdNanos == NO_CREATED_AT
+                        ? null : LocalDateTime.ofEpochSecond(createdSeconds, createdNanos, ZoneOffset.UTC))
+                .version(version == NO_VERSION ? null : version)
+                .build();
+    }
+
+    /**
+     * Записывает пользователя в слот. Вызывается под блокировкой записи.
+     */
+    private void write(int slot, long id, User user, byte[] name, byte[] email) {
+        MemorySegment slab = slabs[slot / SLOTS_PER_SLAB];
+        long base = (long) (slot % SLOTS_PER_SLAB) * slotSize;
+        long stamp = slab.get(ValueLayout.JAVA_LONG, base + STAMP);
+        slab.set(ValueLayout.JAVA_LONG, base + STAMP, stamp + 1);
+        VarHandle.storeStoreFence();
+
+        LocalDateTime createdAt = user.getCreatedAt();
+        slab.set(ValueLayout.JAVA_LONG, base + ID, id);
+        slab.set(ValueLayout.JAVA_LONG, base + VERSION, user.getVersion() == null ? NO_VERSION : user.getVersion());
+        slab.set(ValueLayout.JAVA_LONG, base + CREATED_SECONDS,
+                createdAt == null ? 0 : createdAt.toEpochSecond(ZoneOffset.UTC));
+        slab.set(ValueLayout.JAVA_INT, base + CREATED_NANOS, createdAt == null ? NO_CREATED_AT : createdAt.getNano());
+        slab.set(ValueLayout.JAVA_INT, base + AGE, user.getAge());
+        slab.set(ValueLayout.JAVA_SHORT, base + NAME_LENGTH, (short) name.length);
+        slab.set(ValueLayout.JAVA_SHORT, base + EMAIL_LENGTH, (short) email.length);
+        slab.set(ValueLayout.JAVA_BYTE, base + REFERENCED, (byte) 0);
+        MemorySegment.copy(name, 0, slab, ValueLayout.JAVA_BYTE, base + HEADER_SIZE, name.length);
+        MemorySegment.copy(email, 0, slab, ValueLayout.JAVA_BYTE, base + HEADER_SIZE + name.length, email.length);
+
+        VarHandle.releaseFence();
+        slab.set(ValueLayout.JAVA_LONG, base + STAMP, stamp + 2);
+    }
+
+    /**
+     * Помечает слот свободным. Вызывается под блокировкой записи.
+     */
+    private void free(int slot) {
+        MemorySegment slab = slabs[slot / SLOTS_PER_SLAB];
+        long base = (long) (slot % SLOTS_PER_SLAB) * slotSize;
+        long stamp = slab.get(ValueLayout.JAVA_LONG, base + STAMP);
+        slab.set(ValueLayout.JAVA_LONG, base + STAMP, stamp + 1);
+        VarHandle.storeStoreFence();
+        slab.set(ValueLayout.JAVA_LONG, base + ID, EMPTY);
+        VarHandle.releaseFence();
+        slab.set(ValueLayout.JAVA_LONG, base + STAMP, stamp + 2);
+    }
+
+    /**
+     * Выдаёт слот для новой записи: сначала ещё не использованные слоты, затем по алгоритму CLOCK
+     * свободный или давно не читавшийся слот. Вызывается под блокировкой записи.
+     */
+    private int allocateSlot() {
+        if (allocated < capacity) {
+            int slab = allocated / SLOTS_PER_SLAB;
+            if (slabs[slab] == null) {
+                int slots = Math.min(SLOTS_PER_SLAB, capacity - slab * SLOTS_PER_SLAB);
+                slabs[slab] = arena.allocate((long) slots * slotSize, 8);
+            }
+            return allocated++;
+        }
+        while (true) {
+            int slot = hand;
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+            MemorySegment slab = slabs[slot / SLOTS_PER_SLAB];
+            long base = (long) (slot % SLOTS_PER_SLAB) * slotSize;
+            long id = slab.get(ValueLayout.JAVA_LONG, base + ID);
+            if (id == EMPTY) {
+                return slot;
+            }
+            if (slab.get(ValueLayout.JAVA_BYTE, base + REFERENCED) != 0) {
+                slab.set(ValueLayout.JAVA_BYTE, base + REFERENCED, (byte) 0);
+                continue;
+            }
+            remove(find(id));
+            size--;
+            evictions.increment();
+            return slot;
+        }
+    }
+
+    private long find(long id) {
+        long position = hash(id);
+        while (true) {
+            long key = index.get(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE);
+            if (key == id) {
+                return position;
+            }
+            if (key == EMPTY) {
+                return -1;
+            }
+            position = (position + 1) & indexMask;
+        }
+    }
+
+    /**
+     * Добавляет запись индекса. Номер слота записывается раньше ID, чтобы читатель, увидевший ID,
+     * увидел и слот.
+     */
+    private void insert(long id, int slot) {
+        long position = hash(id);
+        while (index.get(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE) != EMPTY) {
+            position = (position + 1) & indexMask;
+        }
+        setEntry(position, id, slot);
+    }
+
+    /**
+     * Удаляет запись индекса, сдвигая назад следующие записи той же цепочки. Читатель, проходящий
+     * цепочку во время сдвига, может не найти запись — для кэша это всего лишь промах.
+     */
+    private void remove(long position) {
+        long hole = position;
+        long next = (hole + 1) & indexMask;
+        while (true) {
+            long key = index.get(ValueLayout.JAVA_LONG, next * INDEX_ENTRY_SIZE);
+            if (key == EMPTY) {
+                break;
+            }
+            long home = hash(key);
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                setEntry(hole, key, slotAt(next));
+                hole = next;
+            }
+            next = (next + 1) & indexMask;
+        }
+        index.set(ValueLayout.JAVA_LONG, hole * INDEX_ENTRY_SIZE, EMPTY);
+    }
+
+    private void setEntry(long position, long id, int slot) {
+        index.set(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE + 8, slot);
+        VarHandle.releaseFence();
+        index.set(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE, id);
+    }
+
+    private int slotAt(long position) {
+        return (int) index.get(ValueLayout.JAVA_LONG, position * INDEX_ENTRY_SIZE + 8);
+    }
+
+    private long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 32)) & indexMask;
+    }
+
+    private static int stripe(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+}
@@ -0,0 +1,11 @@
+package dao;
+
+/**
+ * Столбец гистограммы возрастов: пользователи с возрастом от {@code fromAge} включительно
+ * до {@code fromAge + ширина} не включительно.
+ *
+ * @param fromAge нижняя граница столбца
+ * @param count   число пользователей
+ */
+public record AgeBucket(int fromAge, long count) {
+}
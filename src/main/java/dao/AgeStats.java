@@ -0,0 +1,12 @@
+package dao;
+
+/**
+ * Сводка по возрасту пользователей.
+ *
+ * @param count   число пользователей
+ * @param minAge  минимальный возраст, или {@code null}, если пользователей нет
+ * @param maxAge  максимальный возраст, или {@code null}, если пользователей нет
+ * @param avgAge  средний возраст, или {@code null}, если пользователей нет
+ */
+public record AgeStats(long count, Integer minAge, Integer maxAge, Double avgAge) {
+}
@@ -0,0 +1,16 @@
+package dao;
+
+/**
+ * Формат выгрузки пользователей.
+ */
+public enum ExportFormat {
+    /**
+     * CSV с заголовком {@code id,name,email,age,created_at}.
+     */
+    CSV,
+    /**
+     * Один JSON-объект на строку (newline-delimited JSON) с полями {@code id}, {@code name}, {@code email},
+     * {@code age} и {@code created_at}.
+     */
+    NDJSON
+}
@@ -0,0 +1,11 @@
+package dao;
+
+/**
+ * Итог (или промежуточный прогресс) импорта пользователей.
+ *
+ * @param read     сколько записей прочитано из файла (без заголовка)
+ * @param imported сколько пользователей добавлено в таблицу {@code users}
+ * @param rejected сколько записей отклонено и сохранено в {@code users_import_rejects}
+ */
+public record ImportResult(long read, long imported, long rejected) {
+}
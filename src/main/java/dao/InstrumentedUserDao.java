@@ -0,0 +1,244 @@
+package dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import model.User;
+import model.UserSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор {@link UserDao}, измеряющий время выполнения каждого метода.
+ *
+ * <p>Для каждого метода регистрируются таймер {@value #TIMER} (число вызовов, суммарное и максимальное
+ * время, перцентили p50/p95/p99) и счётчик ошибок {@value #ERRORS}, оба с тегом {@code method}.
+ * Ошибкой считается исключение, вышедшее из делегата. Метры создаются один раз в конструкторе,
+ * так что на каждый вызов приходится только замер времени и запись в гистограмму.</p>
+ */
+public class InstrumentedUserDao implements UserDao {
+
+    public static final String TIMER = "user.dao.operation";
+    public static final String ERRORS = "user.dao.errors";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final UserDao delegate;
+    private final Operation save;
+    private final Operation saveAll;
+    private final Operation writeBatch;
+    private final Operation upsertByEmail;
+    private final Operation upsertAll;
+    private final Operation findById;
+    private final Operation findByIdFromPrimary;
+    private final Operation findByEmail;
+    private final Operation findByEmailIgnoreCase;
+    private final Operation findAll;
+    private final Operation findPage;
+    private final Operation findSummaries;
+    private final Operation search;
+    private final Operation count;
+    private final Operation ageStats;
+    private final Operation ageHistogram;
+    private final Operation signups;
+    private final Operation streamAll;
+    private final Operation update;
+    private final Operation updateById;
+    private final Operation updateIfVersion;
+    private final Operation delete;
+    private final Operation deleteById;
+
+    /**
+     * @param delegate DAO, вызовы которого измеряются
+     * @param registry реестр, в котором регистрируются метрики
+     */
+    public InstrumentedUserDao(UserDao delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.save = new Operation(registry, "save");
+        this.saveAll = new Operation(registry, "saveAll");
+        this.writeBatch = new Operation(registry, "writeBatch");
+        this.upsertByEmail = new Operation(registry, "upsertByEmail");
+        this.upsertAll = new Operation(registry, "upsertAll");
+        this.findById = new Operation(registry, "findById");
+        this.findByIdFromPrimary = new Operation(registry, "findByIdFromPrimary");
+        this.findByEmail = new Operation(registry, "findByEmail");
+        this.findByEmailIgnoreCase = new Operation(registry, "findByEmailIgnoreCase");
+        this.findAll = new Operation(registry, "findAll");
+        this.findPage = new Operation(registry, "findPage");
+        this.findSummaries = new Operation(registry, "findSummaries");
+        this.search = new Operation(registry, "search");
+        this.count = new Operation(registry, "count");
+        this.ageStats = new Operation(registry, "ageStats");
+        this.ageHistogram = new Operation(registry, "ageHistogram");
+        this.signups = new Operation(registry, "signups");
+        this.streamAll = new Operation(registry, "streamAll");
+        this.update = new Operation(registry, "update");
+        this.updateById = new Operation(registry, "updateById");
+        this.updateIfVersion = new Operation(registry, "updateIfVersion");
+        this.delete = new Operation(registry, "delete");
+        this.deleteById = new Operation(registry, "deleteById");
+    }
+
+    @Override
+    public void save(User user) {
+        save.run(() -> delegate.save(user));
+    }
+
+    @Override
+    public int saveAll(Collection<User> users) {
+        return saveAll.call(() -> delegate.saveAll(users));
+    }
+
+    @Override
+    public Set<Long> writeBatch(Collection<User> inserts, Collection<User> updates) {
+        return writeBatch.call(() -> delegate.writeBatch(inserts, updates));
+    }
+
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        return upsertByEmail.call(() -> delegate.upsertByEmail(user));
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<User> users) {
+        return upsertAll.call(() -> delegate.upsertAll(users));
+    }
+
+    @Override
+    public User findById(Long id) {
+        return findById.call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public User findByIdFromPrimary(Long id) {
+        return findByIdFromPrimary.call(() -> delegate.findByIdFromPrimary(id));
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return findByEmail.call(() -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public User findByEmailIgnoreCase(String email) {
+        return findByEmailIgnoreCase.call(() -> delegate.findByEmailIgnoreCase(email));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return findAll.call(delegate::findAll);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return findPage.call(() -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public List<UserSummary> findSummaries(Long afterId, int limit) {
+        return findSummaries.call(() -> delegate.findSummaries(afterId, limit));
+    }
+
+    @Override
+    public UserPage search(UserSearch filter, PageRequest page) {
+        return search.call(() -> delegate.search(filter, page));
+    }
+
+    @Override
+    public long count(UserSearch filter) {
+        return count.call(() -> delegate.count(filter));
+    }
+
+    @Override
+    public AgeStats ageStats(UserSearch filter) {
+        return ageStats.call(() -> delegate.ageStats(filter));
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(UserSearch filter, int bucketWidth) {
+        return ageHistogram.call(() -> delegate.ageHistogram(filter, bucketWidth));
+    }
+
+    @Override
+    public List<SignupBucket> signups(UserSearch filter, TimeBucket bucket) {
+        return signups.call(() -> delegate.signups(filter, bucket));
+    }
+
+    /**
+     * Измеряется только открытие курсора: чтение потока происходит уже на стороне вызывающего.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return streamAll.call(delegate::streamAll);
+    }
+
+    @Override
+    public void update(User user) {
+        update.run(() -> delegate.update(user));
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, int age) {
+        return updateById.call(() -> delegate.updateById(id, name, email, age));
+    }
+
+    @Override
+    public int updateIfVersion(User user) {
+        return updateIfVersion.call(() -> delegate.updateIfVersion(user));
+    }
+
+    @Override
+    public void delete(User user) {
+        delete.run(() -> delegate.delete(user));
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return deleteById.call(() -> delegate.deleteById(id));
+    }
+
+    /**
+     * Таймер и счётчик ошибок одного метода DAO.
+     */
+    private static final class Operation {
+
+        private final Timer timer;
+        private final Counter errors;
+
+        Operation(MeterRegistry registry, String method) {
+            this.timer = Timer.builder(TIMER)
+                    .description("Время выполнения метода UserDao")
+                    .tag("method", method)
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry);
+            this.errors = Counter.builder(ERRORS)
+                    .description("Исключения, выброшенные методом UserDao")
+                    .tag("method", method)
+                    .register(registry);
+        }
+
+        <T> T call(Supplier<T> action) {
+            long start = System.nanoTime();
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                errors.increment();
+                throw e;
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void run(Runnable action) {
+            call(() -> {
+                action.run();
+                return null;
+            });
+        }
+    }
+}
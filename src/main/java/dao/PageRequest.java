@@ -0,0 +1,39 @@
+package dao;
+
+/**
+ * Запрос страницы результатов с keyset-пагинацией по ID.
+ *
+ * @param afterId   ID последнего пользователя предыдущей страницы; {@code null} — с начала
+ * @param limit     размер страницы; значения больше {@value #MAX_LIMIT} уменьшаются до {@value #MAX_LIMIT}
+ * @param withTotal считать ли общее число найденных пользователей (отдельный запрос {@code count})
+ */
+public record PageRequest(Long afterId, int limit, boolean withTotal) {
+
+    /**
+     * Наибольший размер страницы.
+     */
+    public static final int MAX_LIMIT = 1_000;
+
+    public PageRequest {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * @param limit размер страницы
+     * @return первая страница без подсчёта общего числа
+     */
+    public static PageRequest first(int limit) {
+        return new PageRequest(null, limit, false);
+    }
+
+    /**
+     * @param page полученная страница
+     * @return запрос следующей страницы того же размера, без повторного подсчёта общего числа
+     */
+    public PageRequest next(UserPage page) {
+        return new PageRequest(page.nextAfterId(), limit, false);
+    }
+}
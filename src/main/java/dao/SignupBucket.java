@@ -0,0 +1,12 @@
+package dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * Число регистраций за один интервал {@link TimeBucket}.
+ *
+ * @param start начало интервала
+ * @param count число зарегистрировавшихся пользователей
+ */
+public record SignupBucket(LocalDateTime start, long count) {
+}
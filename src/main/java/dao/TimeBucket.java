@@ -0,0 +1,24 @@
+package dao;
+
+/**
+ * Интервал, по которому группируются регистрации в {@link UserDao#signups(UserSearch, TimeBucket)}.
+ */
+public enum TimeBucket {
+    HOUR("hour"),
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    private final String unit;
+
+    TimeBucket(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @return единица {@code date_trunc} в PostgreSQL
+     */
+    String unit() {
+        return unit;
+    }
+}
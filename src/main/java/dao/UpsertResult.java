@@ -0,0 +1,10 @@
+package dao;
+
+/**
+ * Итог вставки или обновления пользователей по email.
+ *
+ * @param inserted сколько пользователей добавлено
+ * @param updated  сколько существующих пользователей обновлено
+ */
+public record UpsertResult(long inserted, long updated) {
+}
@@ -0,0 +1,294 @@
+package dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import util.CsvFormat;
+import util.HibernateUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый импорт пользователей из CSV через {@code COPY} PostgreSQL.
+ *
+ * <p>Файл читается по одной записи, записи копятся пачками по {@code chunkSize} строк.
+ * Каждая пачка загружается командой {@code COPY} во временную таблицу
+ * {@value #STAGING_TABLE}, после чего одним запросом переносится в {@code users}.
+ * Пачка фиксируется отдельной транзакцией, поэтому потребление памяти не зависит от размера файла.</p>
+ *
+ * <p>Строки проверяются так же, как в {@code UserService.createUser}: имя и email обязательны.
+ * Строки, не прошедшие проверку, и строки с уже существующим (или повторяющимся в файле) email
+ * не прерывают импорт, а сохраняются с причиной в таблицу {@value #REJECTS_TABLE}.</p>
+ *
+ * <p>Ожидаемый заголовок: {@code name,email,age} и необязательный столбец {@code created_at}
+ * в формате ISO ({@code 2024-01-31T12:00:00}). Если {@code created_at} не задан, используется время импорта.</p>
+ */
+@Slf4j
+public class UserCsvImporter {
+
+    static final String STAGING_TABLE = "users_import_staging";
+    static final String REJECTS_TABLE = "users_import_rejects";
+    static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS users_import_staging (
+                line_no bigint, name text, email text, age integer, created_at timestamp(6), reason text
+            ) ON COMMIT DELETE ROWS""";
+
+    private static final String CREATE_REJECTS = """
+            CREATE TABLE IF NOT EXISTS users_import_rejects (
+                import_id varchar(36) NOT NULL, line_no bigint NOT NULL, name text, email text, age integer,
+                reason text NOT NULL, rejected_at timestamp(6) NOT NULL DEFAULT now()
+            )""";
+
+    private static final String COPY_STAGING =
+            "COPY users_import_staging (line_no, name, email, age, created_at, reason) FROM STDIN (FORMAT csv)";
+
+    /**
+     * Переносит первую строку для каждого email в {@code users}; строки, которые не удалось вставить
+     * из-за уже существующего email, помечаются как отклонённые.
+     */
+    private static final String MOVE_TO_USERS = """
+            WITH candidates AS (
+                SELECT DISTINCT ON (email) line_no, name, email, age, created_at
+                FROM users_import_staging
+                WHERE reason IS NULL
+                ORDER BY email, line_no
+            ), inserted AS (
+                INSERT INTO users (id, name, email, age, created_at, version)
+                SELECT nextval('users_seq'), name, email, age, created_at, 0 FROM candidates
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email
+            )
+            UPDATE users_import_staging s SET reason = 'duplicate email'
+            WHERE s.reason IS NULL
+              AND NOT EXISTS (SELECT 1 FROM candidates c JOIN inserted i ON i.email = c.email
+                              WHERE c.line_no = s.line_no)""";
+
+    private static final String SAVE_REJECTS = """
+            INSERT INTO users_import_rejects (import_id, line_no, name, email, age, reason)
+            SELECT ?, line_no, name, email, age, reason FROM users_import_staging WHERE reason IS NOT NULL""";
+
+    private final int chunkSize;
+
+    public UserCsvImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize сколько строк загружать и фиксировать за одну транзакцию
+     */
+    public UserCsvImporter(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Импортирует пользователей из CSV-файла в кодировке UTF-8.
+     *
+     * @param file     путь к файлу
+     * @param progress вызывается после каждой пачки с накопленными счётчиками; может быть {@code null}
+     * @return итог импорта
+     */
+    public ImportResult importCsv(Path file, Consumer<ImportResult> progress) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCsv(reader, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать файл " + file, e);
+        }
+    }
+
+    /**
+     * Импортирует пользователей из CSV.
+     *
+     * @param reader   источник CSV; закрывается вызывающей стороной
+     * @param progress вызывается после каждой пачки с накопленными счётчиками; может быть {@code null}
+     * @return итог импорта
+     */
+    public ImportResult importCsv(Reader reader, Consumer<ImportResult> progress) {
+        BufferedReader input = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        String importId = UUID.randomUUID().toString();
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            ImportResult result = session.doReturningWork(connection -> run(connection, input, importId, progress));
+            log.info("Импорт {} завершён: {}", importId, result);
+            return result;
+        }
+    }
+
+    private ImportResult run(Connection connection, BufferedReader input, String importId,
+                             Consumer<ImportResult> progress) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_REJECTS);
+            statement.execute(CREATE_STAGING);
+            connection.commit();
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            Columns columns = Columns.fromHeader(CsvFormat.readRecord(input));
+            LocalDateTime importedAt = LocalDateTime.now();
+
+            long read = 0;
+            long imported = 0;
+            long rejected = 0;
+            StringBuilder chunk = new StringBuilder();
+            int chunkRows = 0;
+            int chunkInvalid = 0;
+            List<String> record;
+            while ((record = CsvFormat.readRecord(input)) != null) {
+                if (record.size() == 1 && record.getFirst() == null) {
+                    continue; // пустая строка
+                }
+                read++;
+                if (!appendRow(chunk, read, record, columns, importedAt)) {
+                    chunkInvalid++;
+                }
+                if (++chunkRows == chunkSize) {
+                    long duplicates = flushChunk(connection, copyManager, chunk, importId);
+                    imported += chunkRows - chunkInvalid - duplicates;
+                    rejected += chunkInvalid + duplicates;
+                    chunk.setLength(0);
+                    chunkRows = 0;
+                    chunkInvalid = 0;
+                    report(progress, new ImportResult(read, imported, rejected));
+                }
+            }
+            if (chunkRows > 0) {
+                long duplicates = flushChunk(connection, copyManager, chunk, importId);
+                imported += chunkRows - chunkInvalid - duplicates;
+                rejected += chunkInvalid + duplicates;
+                report(progress, new ImportResult(read, imported, rejected));
+            }
+            return new ImportResult(read, imported, rejected);
+        } catch (IOException e) {
+            connection.rollback();
+            log.error("Ошибка чтения CSV при импорте {}", importId, e);
+            throw new UncheckedIOException("Импорт прерван: ошибка чтения CSV", e);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            log.error("Ошибка при импорте {}", importId, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Загружает пачку в staging-таблицу, переносит её в {@code users} и сохраняет отклонённые строки.
+     *
+     * @return сколько строк пачки отклонено из-за повторяющегося email
+     */
+    private long flushChunk(Connection connection, CopyManager copyManager, StringBuilder chunk, String importId)
+            throws SQLException, IOException {
+        copyManager.copyIn(COPY_STAGING, new StringReader(chunk.toString()));
+        long duplicates;
+        try (Statement statement = connection.createStatement()) {
+            duplicates = statement.executeUpdate(MOVE_TO_USERS);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SAVE_REJECTS)) {
+            statement.setString(1, importId);
+            statement.executeUpdate();
+        }
+        connection.commit();
+        HibernateUtil.recordWrite();
+        return duplicates;
+    }
+
+    /**
+     * Проверяет запись и дописывает её в пачку для {@code COPY}.
+     *
+     * @return {@code true}, если запись прошла проверку
+     */
+    private static boolean appendRow(StringBuilder chunk, long lineNo, List<String> record, Columns columns,
+                                     LocalDateTime importedAt) {
+        String name = columns.get(record, columns.name);
+        String email = columns.get(record, columns.email);
+        String ageValue = columns.get(record, columns.age);
+        String createdAtValue = columns.get(record, columns.createdAt);
+
+        String reason = null;
+        Integer age = null;
+        LocalDateTime createdAt = importedAt;
+        if (name == null || email == null) {
+            reason = "name and email are required";
+        } else {
+            try {
+                age = ageValue == null ? 0 : Integer.parseInt(ageValue.trim());
+                if (createdAtValue != null) {
+                    createdAt = LocalDateTime.parse(createdAtValue.trim());
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                reason = "invalid value: " + e.getMessage();
+            }
+        }
+
+        chunk.append(lineNo).append(',');
+        CsvFormat.appendField(chunk, name);
+        chunk.append(',');
+        CsvFormat.appendField(chunk, email);
+        chunk.append(',');
+        if (age != null) {
+            chunk.append(age);
+        }
+        chunk.append(',');
+        if (reason == null) {
+            chunk.append(createdAt);
+        }
+        chunk.append(',');
+        CsvFormat.appendField(chunk, reason);
+        chunk.append('\n');
+        return reason == null;
+    }
+
+    private static void report(Consumer<ImportResult> progress, ImportResult result) {
+        log.info("Прогресс импорта: {}", result);
+        if (progress != null) {
+            progress.accept(result);
+        }
+    }
+
+    /**
+     * Позиции столбцов, определённые по заголовку CSV.
+     */
+    private record Columns(int name, int email, int age, int createdAt) {
+
+        static Columns fromHeader(List<String> header) {
+            if (header == null) {
+                throw new IllegalArgumentException("CSV-файл пуст: нет заголовка");
+            }
+            List<String> names = header.stream()
+                    .map(column -> column == null ? "" : column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            Columns columns = new Columns(names.indexOf("name"), names.indexOf("email"),
+                    names.indexOf("age"), names.indexOf("created_at"));
+            if (columns.name < 0 || columns.email < 0) {
+                throw new IllegalArgumentException("В заголовке CSV должны быть столбцы name и email");
+            }
+            return columns;
+        }
+
+        String get(List<String> record, int index) {
+            return index >= 0 && index < record.size() ? record.get(index) : null;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package dao;
 
 import model.User;
+import model.UserSummary;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс доступа к данным пользователей (DAO - Data Access Object).
@@ -16,6 +20,42 @@ public interface UserDao {
      */
     void save(User user);
 
+    /**
+     * Сохраняет пачку новых пользователей в одной транзакции с пакетной записью JDBC.
+     *
+     * @param users пользователи, которых нужно сохранить
+     * @return количество сохранённых пользователей
+     */
+    int saveAll(Collection<User> users);
+
+    /**
+     * Записывает пачку новых и изменённых пользователей в одной транзакции. При ошибке транзакция
+     * откатывается, а исключение пробрасывается вызывающему.
+     *
+     * @param inserts новые пользователи; после успешной записи у них заполнен ID
+     * @param updates изменения существующих пользователей: ID и новые имя, email и возраст
+     * @return ID из {@code updates}, которых нет в базе
+     */
+    Set<Long> writeBatch(Collection<User> inserts, Collection<User> updates);
+
+    /**
+     * Добавляет пользователя или, если пользователь с таким email уже есть, обновляет его имя и возраст.
+     * Выполняется одним запросом {@code INSERT ... ON CONFLICT (email) DO UPDATE}.
+     *
+     * @param user пользователь; после вызова у него заполнен ID
+     * @return итог: одна вставка или одно обновление
+     */
+    UpsertResult upsertByEmail(User user);
+
+    /**
+     * Пакетный вариант {@link #upsertByEmail(User)}: все пользователи записываются в одной транзакции,
+     * по одному запросу на каждую порцию. Из нескольких пользователей с одинаковым email записывается последний.
+     *
+     * @param users пользователи; после вызова у них заполнен ID
+     * @return число добавленных и обновлённых пользователей
+     */
+    UpsertResult upsertAll(Collection<User> users);
+
     /**
      * Ищет пользователя по его уникальному идентификатору.
      *
@@ -24,6 +64,16 @@ public interface UserDao {
      */
     User findById(Long id);
 
+    /**
+     * Читает текущее состояние пользователя с основного сервера, минуя реплики и кэш второго уровня.
+     * Нужен там, где устаревшая копия недопустима: перед записью с проверкой версии и при заполнении
+     * кэшей, которые не знают о репликах.
+     *
+     * @param id идентификатор пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    User findByIdFromPrimary(Long id);
+
     /**
      * Возвращает список всех пользователей из базы данных.
      *
@@ -31,6 +81,93 @@ public interface UserDao {
      */
     List<User> findAll();
 
+    /**
+     * Ищет пользователя по email (естественному ключу) с точным совпадением.
+     *
+     * @param email email пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    User findByEmail(String email);
+
+    /**
+     * Ищет пользователя по email без учёта регистра. Уникальность email в базе учитывает регистр,
+     * поэтому совпасть могут несколько пользователей: тогда возвращается пользователь с точно таким же email,
+     * а если такого нет — с наименьшим ID.
+     *
+     * @param email email пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    User findByEmailIgnoreCase(String email);
+
+    /**
+     * Возвращает страницу пользователей, упорядоченных по ID (keyset-пагинация).
+     *
+     * @param afterId ID последнего пользователя предыдущей страницы; {@code null} — с начала
+     * @param limit   максимальный размер страницы
+     * @return пользователи с ID больше {@code afterId}, не более {@code limit}
+     */
+    List<User> findPage(Long afterId, int limit);
+
+    /**
+     * Возвращает страницу кратких представлений пользователей (ID, имя, email), упорядоченных по ID.
+     *
+     * @param afterId ID последнего пользователя предыдущей страницы; {@code null} — с начала
+     * @param limit   максимальный размер страницы
+     * @return список {@link UserSummary}
+     */
+    List<UserSummary> findSummaries(Long afterId, int limit);
+
+    /**
+     * Ищет пользователей по условиям. Фильтрация и подсчёт выполняются в базе.
+     *
+     * @param filter условия поиска; {@code null} — без условий
+     * @param page   запрашиваемая страница
+     * @return страница найденных пользователей, упорядоченных по ID
+     */
+    UserPage search(UserSearch filter, PageRequest page);
+
+    /**
+     * Считает пользователей, подходящих под условия, одним запросом {@code count}.
+     *
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @return число пользователей
+     */
+    long count(UserSearch filter);
+
+    /**
+     * Возвращает число, минимальный, максимальный и средний возраст пользователей.
+     *
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @return сводка по возрасту
+     */
+    AgeStats ageStats(UserSearch filter);
+
+    /**
+     * Возвращает гистограмму возрастов. Пустые столбцы не возвращаются.
+     *
+     * @param filter      условия поиска; {@code null} — все пользователи
+     * @param bucketWidth ширина столбца, лет
+     * @return столбцы гистограммы по возрастанию возраста
+     */
+    List<AgeBucket> ageHistogram(UserSearch filter, int bucketWidth);
+
+    /**
+     * Возвращает число регистраций по интервалам времени. Интервалы без регистраций не возвращаются.
+     *
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @param bucket интервал группировки
+     * @return интервалы по возрастанию времени
+     */
+    List<SignupBucket> signups(UserSearch filter, TimeBucket bucket);
+
+    /**
+     * Возвращает всех пользователей в виде потока, читаемого курсором по частям.
+     * Поток держит открытое соединение и должен быть закрыт (например, в try-with-resources).
+     *
+     * @return поток пользователей, упорядоченных по ID
+     */
+    Stream<User> streamAll();
+
     /**
      * Обновляет данные существующего пользователя.
      *
@@ -38,10 +175,37 @@ public interface UserDao {
      */
     void update(User user);
 
+    /**
+     * Обновляет имя, email и возраст пользователя одним UPDATE-запросом, без предварительной загрузки.
+     *
+     * @param id    идентификатор пользователя
+     * @param name  новое имя
+     * @param email новый email
+     * @param age   новый возраст
+     * @return количество обновлённых строк: 1, если пользователь найден, иначе 0
+     */
+    int updateById(Long id, String name, String email, int age);
+
+    /**
+     * Обновляет имя, email и возраст пользователя, если его версия в базе совпадает с {@code user.getVersion()}.
+     *
+     * @param user пользователь с прочитанной ранее версией и новыми значениями полей
+     * @return 1, если пользователь обновлён; 0, если версия устарела или пользователя нет
+     */
+    int updateIfVersion(User user);
+
     /**
      * Удаляет пользователя из базы данных.
      *
      * @param user объект {@link User}, которого нужно удалить
      */
     void delete(User user);
+
+    /**
+     * Удаляет пользователя одним DELETE-запросом, без предварительной загрузки.
+     *
+     * @param id идентификатор пользователя
+     * @return количество удалённых строк: 1, если пользователь найден, иначе 0
+     */
+    int deleteById(Long id);
 }
@@ -2,21 +2,93 @@ package dao;
 
 import lombok.extern.slf4j.Slf4j;
 import model.User;
+import model.UserSummary;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import util.HibernateUtil;
+import util.LogSampler;
 
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Реализация интерфейса {@link UserDao} с использованием Hibernate.
  * Выполняет CRUD-операции над сущностью {@link User} через ORM.
  *
- * <p>Каждый метод автоматически логирует действия и ошибки с использованием SLF4J (Logback).</p>
+ * <p>Методы чтения открывают сессию только для чтения: она не сбрасывается в БД,
+ * а загруженные сущности не получают снимков состояния для проверки изменений. Такие сессии
+ * выполняются внутри {@link HibernateUtil#readScope()} и при заданных репликах читают с них;
+ * после каждой записи вызывается {@link HibernateUtil#recordWrite()}.</p>
+ *
+ * <p>Ошибки базы данных не подавляются: транзакция откатывается, а исключение пробрасывается вызывающему,
+ * поэтому пустой результат всегда означает отсутствие данных, а не сбой.</p>
+ *
+ * <p>Каждый метод логирует действия (на уровне DEBUG) и ошибки с использованием SLF4J (Logback).
+ * Сообщения об ошибках ограничены по частоте: при отказе базы данных каждый вызов завершился бы
+ * ошибкой, и лог заполнился бы одинаковыми стек-трейсами.</p>
  */
 @Slf4j
 public class UserDaoImpl implements UserDao {
 
+    /**
+     * Сколько строк драйвер забирает из серверного курсора за одно обращение при потоковом чтении.
+     */
+    static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Сколько пользователей передаётся в одном запросе {@link #upsertAll}.
+     */
+    static final int UPSERT_CHUNK_SIZE = 5_000;
+
+    /**
+     * Пользователи передаются массивами через {@code unnest}, поэтому порция любого размера занимает один запрос.
+     * Признак {@code xmax = 0} истинен только для вставленной строки: у обновлённой версии строки
+     * в {@code xmax} записан ID транзакции, заблокировавшей её при конфликте.
+     */
+    private static final String UPSERT = """
+            INSERT INTO users (id, name, email, age, created_at, version)
+            SELECT nextval('users_seq'), u.name, u.email, u.age, u.created_at, 0
+            FROM unnest(?::text[], ?::text[], ?::integer[], ?::timestamp[]) AS u(name, email, age, created_at)
+            ON CONFLICT (email) DO UPDATE
+            SET name = EXCLUDED.name, age = EXCLUDED.age, version = users.version + 1
+            RETURNING id, email, (xmax = 0) AS inserted""";
+
+    /**
+     * Версия увеличивается, чтобы параллельные {@link #updateIfVersion} заметили изменение.
+     * Соединение с той же строкой возвращает email до обновления: по нему из кэша удаляется соответствие email → ID.
+     */
+    private static final String UPDATE_BY_ID = """
+            UPDATE users u SET name = ?, email = ?, age = ?, version = u.version + 1
+            FROM users old
+            WHERE u.id = ? AND old.id = u.id
+            RETURNING old.email""";
+
+    private static final String DELETE_BY_ID = "DELETE FROM users WHERE id = ? RETURNING email";
+
+    private static final LogSampler ERROR_LOG_SAMPLER = new LogSampler(20, Duration.ofSeconds(1));
+
     /**
      * Сохраняет нового пользователя в базу данных.
      *
@@ -33,12 +105,203 @@ public class UserDaoImpl implements UserDao {
             tx = session.beginTransaction();
             session.persist(user);
             tx.commit();
-            log.info("Пользователь сохранён: {}", user);
-        } catch (Exception e) {
+            HibernateUtil.recordWrite();
+            log.debug("Пользователь сохранён: id={}", user.getId());
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при сохранении пользователя", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет пачку пользователей в одной транзакции.
+     *
+     * <p>Сессия сбрасывается и очищается каждые {@code hibernate.jdbc.batch_size} записей, поэтому
+     * INSERT-ы уходят в базу JDBC-пакетами, а контекст персистентности не растёт вместе с пачкой.</p>
+     *
+     * @param users пользователи, которых нужно сохранить
+     * @return количество сохранённых пользователей
+     */
+    @Override
+    public int saveAll(Collection<User> users) {
+        if (users == null || users.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Список пользователей и его элементы не должны быть null");
+        }
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        int batchSize = HibernateUtil.getBatchSize();
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            tx = session.beginTransaction();
+            int count = 0;
+            for (User user : users) {
+                session.persist(user);
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            tx.commit();
+            HibernateUtil.recordWrite();
+            log.debug("Сохранено пользователей: {}", count);
+            return count;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при пакетном сохранении пользователей", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает пачку новых и изменённых пользователей в одной транзакции.
+     *
+     * <p>Изменяемые пользователи загружаются одним запросом и меняются как управляемые сущности,
+     * поэтому и INSERT-ы, и UPDATE-ы уходят в базу JDBC-пакетами, а кэш второго уровня обновляется
+     * по каждой записи, а не сбрасывается целиком, как после {@code UPDATE}-запроса.</p>
+     *
+     * @param inserts новые пользователи; после успешной записи у них заполнен ID
+     * @param updates изменения существующих пользователей: ID и новые имя, email и возраст
+     * @return ID из {@code updates}, которых нет в базе
+     */
+    @Override
+    public Set<Long> writeBatch(Collection<User> inserts, Collection<User> updates) {
+        if (inserts == null || updates == null) {
+            throw new IllegalArgumentException("Списки пользователей не должны быть null");
+        }
+        if (inserts.isEmpty() && updates.isEmpty()) {
+            return Set.of();
+        }
+
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.setJdbcBatchSize(HibernateUtil.getBatchSize());
+            tx = session.beginTransaction();
+            inserts.forEach(session::persist);
+
+            Set<Long> missing = new HashSet<>();
+            if (!updates.isEmpty()) {
+                List<User> changes = List.copyOf(updates);
+                List<User> current = session.findMultiple(User.class, changes.stream().map(User::getId).toList());
+                for (int i = 0; i < changes.size(); i++) {
+                    User change = changes.get(i);
+                    User user = current.get(i);
+                    if (user == null) {
+                        missing.add(change.getId());
+                        continue;
+                    }
+                    user.setName(change.getName());
+                    user.setEmail(change.getEmail());
+                    user.setAge(change.getAge());
+                }
+            }
+            tx.commit();
+            HibernateUtil.recordWrite();
+            log.debug("Записана пачка: новых {}, изменённых {}", inserts.size(), updates.size() - missing.size());
+            return missing;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            // ID, выданные при persist, откатились вместе с транзакцией
+            inserts.forEach(user -> user.setId(null));
+            logError("Ошибка при записи пачки пользователей", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Добавляет или обновляет пользователя по email одним запросом. Обновлённый пользователь
+     * удаляется из кэша второго уровня: Hibernate не видит изменений, сделанных через JDBC.
+     *
+     * @param user пользователь; после вызова у него заполнен ID
+     * @return итог: одна вставка или одно обновление
+     */
+    @Override
+    public UpsertResult upsertByEmail(User user) {
+        if (user == null || user.getEmail() == null) {
+            throw new IllegalArgumentException("Пользователь и его email не должны быть null");
+        }
+
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            Map<String, Long> ids = new HashMap<>();
+            List<Long> updatedIds = new ArrayList<>();
+            session.doWork(connection -> upsertChunk(connection, List.of(user), ids, updatedIds));
+            tx.commit();
+            HibernateUtil.recordWrite();
+
+            user.setId(ids.get(user.getEmail()));
+            boolean inserted = updatedIds.isEmpty();
+            if (!inserted) {
+                HibernateUtil.getSessionFactory().getCache().evictEntityData(User.class, user.getId());
+            }
+            log.debug("Пользователь {} по email: id={}", inserted ? "добавлен" : "обновлён", user.getId());
+            return inserted ? new UpsertResult(1, 0) : new UpsertResult(0, 1);
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при сохранении пользователя по email", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Добавляет или обновляет пользователей по email, по одному запросу на порцию
+     * из {@value #UPSERT_CHUNK_SIZE} строк.
+     * Повторяющиеся email схлопываются заранее: PostgreSQL не позволяет одной команде
+     * {@code ON CONFLICT DO UPDATE} изменить строку дважды.
+     *
+     * @param users пользователи; после вызова у них заполнен ID
+     * @return число добавленных и обновлённых пользователей
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<User> users) {
+        if (users == null || users.stream().anyMatch(user -> user == null || user.getEmail() == null)) {
+            throw new IllegalArgumentException("Список пользователей, его элементы и их email не должны быть null");
+        }
+        if (users.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+
+        Map<String, User> byEmail = new LinkedHashMap<>();
+        users.forEach(user -> byEmail.put(user.getEmail(), user));
+        List<User> unique = List.copyOf(byEmail.values());
+
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            Map<String, Long> ids = new HashMap<>();
+            List<Long> updatedIds = new ArrayList<>();
+            session.doWork(connection -> {
+                for (int from = 0; from < unique.size(); from += UPSERT_CHUNK_SIZE) {
+                    List<User> chunk = unique.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, unique.size()));
+                    upsertChunk(connection, chunk, ids, updatedIds);
+                }
+            });
+            tx.commit();
+            HibernateUtil.recordWrite();
+
+            users.forEach(user -> user.setId(ids.get(user.getEmail())));
+            long inserted = ids.size() - updatedIds.size();
+            updatedIds.forEach(id -> HibernateUtil.getSessionFactory().getCache().evictEntityData(User.class, id));
+            log.debug("Пакетное сохранение по email: добавлено {}, обновлено {}", inserted, updatedIds.size());
+            return new UpsertResult(inserted, updatedIds.size());
+        } catch (RuntimeException e) {
             if (tx != null && tx.getStatus().canRollback()) {
                 tx.rollback();
             }
-            log.error("Ошибка при сохранении пользователя", e);
+            logError("Ошибка при пакетном сохранении пользователей по email", e);
+            throw e;
         }
     }
 
@@ -50,26 +313,290 @@ public class UserDaoImpl implements UserDao {
      */
     @Override
     public User findById(Long id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        if (id == null) {
+            return null;
+        }
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
             return session.find(User.class, id);
-        } catch (Exception e) {
-            log.error("Ошибка при поиске пользователя по ID: {}", id, e);
+        } catch (RuntimeException e) {
+            logError("Ошибка при поиске пользователя по ID: {}", id, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Читает пользователя по ID вне {@link HibernateUtil#readScope()}, то есть с основного сервера.
+     * Кэш второго уровня не читается ({@link CacheMode#REFRESH}), а обновляется прочитанной строкой.
+     *
+     * @param id идентификатор пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    @Override
+    public User findByIdFromPrimary(Long id) {
+        if (id == null) {
             return null;
         }
+        try (Session session = openReadOnlySession()) {
+            session.setCacheMode(CacheMode.REFRESH);
+            return session.find(User.class, id);
+        } catch (RuntimeException e) {
+            logError("Ошибка при чтении пользователя с основного сервера по ID: {}", id, e);
+            throw e;
+        }
     }
 
     /**
      * Возвращает список всех пользователей.
      *
-     * @return список объектов {@link User}, или пустой список в случае ошибки
+     * @return список объектов {@link User}
      */
     @Override
     public List<User> findAll() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
             return session.createQuery("FROM User", User.class).list();
-        } catch (Exception e) {
-            log.error("Ошибка при получении списка пользователей", e);
-            return List.of();
+        } catch (RuntimeException e) {
+            logError("Ошибка при получении списка пользователей", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ищет пользователя по естественному ключу. Повторные запросы с тем же email разрешаются
+     * через кэш естественного ключа и кэш второго уровня без обращения к БД.
+     *
+     * @param email email пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    @Override
+    public User findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return session.bySimpleNaturalId(User.class).load(email);
+        } catch (RuntimeException e) {
+            logError("Ошибка при поиске пользователя по email: {}", email, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ищет пользователя по {@code lower(email)}; запрос обслуживается функциональным индексом
+     * {@code users_email_lower_idx} (миграция {@code V2__create_users_indexes.sql}). Индекс не уникален:
+     * из нескольких совпадений выбирается точное, затем — с наименьшим ID.
+     *
+     * @param email email пользователя
+     * @return объект {@link User}, если найден; иначе {@code null}
+     */
+    @Override
+    public User findByEmailIgnoreCase(String email) {
+        if (email == null) {
+            return null;
+        }
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return session.createQuery("FROM User u WHERE lower(u.email) = lower(:email) "
+                            + "ORDER BY CASE WHEN u.email = :email THEN 0 ELSE 1 END, u.id", User.class)
+                    .setParameter("email", email)
+                    .setMaxResults(1)
+                    .uniqueResult();
+        } catch (RuntimeException e) {
+            logError("Ошибка при поиске пользователя по email без учёта регистра: {}", email, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает страницу пользователей после заданного ID.
+     *
+     * @param afterId ID последнего пользователя предыдущей страницы; {@code null} — с начала
+     * @param limit   максимальный размер страницы
+     * @return список пользователей
+     */
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return session.createQuery("FROM User u WHERE u.id > :afterId ORDER BY u.id", User.class)
+                    .setParameter("afterId", afterId == null ? Long.MIN_VALUE : afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (RuntimeException e) {
+            logError("Ошибка при получении страницы пользователей после ID: {}", afterId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает страницу кратких представлений пользователей. Запрос выбирает только
+     * три столбца и не создаёт управляемых сущностей.
+     *
+     * @param afterId ID последнего пользователя предыдущей страницы; {@code null} — с начала
+     * @param limit   максимальный размер страницы
+     * @return список {@link UserSummary}
+     */
+    @Override
+    public List<UserSummary> findSummaries(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return session.createQuery("SELECT new model.UserSummary(u.id, u.name, u.email) "
+                            + "FROM User u WHERE u.id > :afterId ORDER BY u.id", UserSummary.class)
+                    .setParameter("afterId", afterId == null ? Long.MIN_VALUE : afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (RuntimeException e) {
+            logError("Ошибка при получении кратких данных пользователей после ID: {}", afterId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ищет пользователей одним запросом страницы и, если запрошено, запросом {@code count}.
+     * Страница читается с одной лишней строкой: по ней видно, есть ли следующая страница.
+     * Текст запроса строит {@link UserSearchQuery}.
+     *
+     * @param filter условия поиска; {@code null} — без условий
+     * @param page   запрашиваемая страница
+     * @return страница пользователей
+     */
+    @Override
+    public UserPage search(UserSearch filter, PageRequest page) {
+        UserSearchQuery query = UserSearchQuery.of(filter);
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            List<User> users = query.bind(session.createQuery(query.selectHql(), User.class))
+                    .setParameter("afterId", page.afterId() == null ? Long.MIN_VALUE : page.afterId())
+                    .setMaxResults(page.limit() + 1)
+                    .list();
+
+            Long nextAfterId = null;
+            if (users.size() > page.limit()) {
+                users = users.subList(0, page.limit());
+                nextAfterId = users.getLast().getId();
+            }
+            Long total = page.withTotal()
+                    ? query.bind(session.createQuery(query.countHql(), Long.class)).getSingleResult()
+                    : null;
+            return new UserPage(List.copyOf(users), nextAfterId, total);
+        } catch (RuntimeException e) {
+            logError("Ошибка при поиске пользователей: {}", filter, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @return число пользователей
+     */
+    @Override
+    public long count(UserSearch filter) {
+        UserSearchQuery query = UserSearchQuery.of(filter);
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return query.bind(session.createQuery(query.countHql(), Long.class)).getSingleResult();
+        } catch (RuntimeException e) {
+            logError("Ошибка при подсчёте пользователей: {}", filter, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @return сводка по возрасту
+     */
+    @Override
+    public AgeStats ageStats(UserSearch filter) {
+        UserSearchQuery query = UserSearchQuery.of(filter);
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return query.bind(session.createQuery(query.ageStatsHql(), AgeStats.class)).getSingleResult();
+        } catch (RuntimeException e) {
+            logError("Ошибка при расчёте статистики возраста: {}", filter, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param filter      условия поиска; {@code null} — все пользователи
+     * @param bucketWidth ширина столбца, лет
+     * @return столбцы гистограммы
+     */
+    @Override
+    public List<AgeBucket> ageHistogram(UserSearch filter, int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина столбца должна быть положительной");
+        }
+        UserSearchQuery query = UserSearchQuery.of(filter);
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return query.bind(session.createQuery(query.ageHistogramHql(bucketWidth), AgeBucket.class)).list();
+        } catch (RuntimeException e) {
+            logError("Ошибка при построении гистограммы возрастов: {}", filter, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param filter условия поиска; {@code null} — все пользователи
+     * @param bucket интервал группировки
+     * @return интервалы с регистрациями
+     */
+    @Override
+    public List<SignupBucket> signups(UserSearch filter, TimeBucket bucket) {
+        if (bucket == null) {
+            throw new IllegalArgumentException("Интервал группировки не должен быть null");
+        }
+        UserSearchQuery query = UserSearchQuery.of(filter);
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = openReadOnlySession()) {
+            return query.bind(session.createQuery(query.signupsHql(bucket), SignupBucket.class)).list();
+        } catch (RuntimeException e) {
+            logError("Ошибка при подсчёте регистраций по интервалам: {}", filter, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает поток всех пользователей через {@link StatelessSession}: строки читаются
+     * серверным курсором по {@value #STREAM_FETCH_SIZE} штук и не накапливаются в контексте персистентности.
+     *
+     * @return поток пользователей
+     */
+    @Override
+    public Stream<User> streamAll() {
+        StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+        try {
+            // Курсор PostgreSQL работает только внутри транзакции; соединение берётся при её открытии
+            Transaction tx;
+            try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope()) {
+                tx = session.beginTransaction();
+            }
+            return session.createQuery("FROM User u ORDER BY u.id", User.class)
+                    .setFetchSize(STREAM_FETCH_SIZE)
+                    .setReadOnly(true)
+                    .stream()
+                    .onClose(() -> {
+                        try {
+                            if (tx.isActive()) {
+                                tx.commit();
+                            }
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            session.close();
+            logError("Ошибка при потоковом чтении пользователей", e);
+            throw e;
         }
     }
 
@@ -88,12 +615,101 @@ public class UserDaoImpl implements UserDao {
             tx = session.beginTransaction();
             session.merge(user);
             tx.commit();
-            log.info("Пользователь обновлён: {}", user);
-        } catch (Exception e) {
+            HibernateUtil.recordWrite();
+            log.debug("Пользователь обновлён: id={}", user.getId());
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при обновлении пользователя", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Обновляет пользователя запросом {@code UPDATE ... WHERE id = ?} без проверки версии, но с её
+     * увеличением, чтобы параллельные {@link #updateIfVersion} заметили изменение. Запрос выполняется через JDBC,
+     * поэтому из кэша второго уровня удаляется только этот пользователь, а не весь регион.
+     *
+     * @param id    идентификатор пользователя
+     * @param name  новое имя
+     * @param email новый email
+     * @param age   новый возраст
+     * @return количество обновлённых строк
+     */
+    @Override
+    public int updateById(Long id, String name, String email, int age) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            String oldEmail = session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_BY_ID)) {
+                    statement.setString(1, name);
+                    statement.setString(2, email);
+                    statement.setInt(3, age);
+                    statement.setLong(4, id);
+                    return singleString(statement);
+                }
+            });
+            tx.commit();
+            HibernateUtil.recordWrite();
+
+            int updated = oldEmail != null ? 1 : 0;
+            if (oldEmail != null) {
+                evictUser(session, id, oldEmail);
+            }
+            log.debug("Обновлено строк по ID {}: {}", id, updated);
+            return updated;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при обновлении пользователя по ID: {}", id, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Обновляет пользователя одним запросом с проверкой версии:
+     * {@code UPDATE ... SET version = version + 1 WHERE id = ? AND version = ?}.
+     *
+     * @param user пользователь с прочитанной ранее версией и новыми значениями полей;
+     *             после успешного обновления его версия увеличивается
+     * @return 1, если пользователь обновлён; 0, если версия устарела или пользователя нет
+     */
+    @Override
+    public int updateIfVersion(User user) {
+        if (user == null || user.getId() == null || user.getVersion() == null) {
+            throw new IllegalArgumentException("Пользователь, его ID и версия не должны быть null");
+        }
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            int updated = session.createMutationQuery("""
+                            UPDATE User u SET u.name = :name, u.email = :email, u.age = :age, u.version = u.version + 1
+                            WHERE u.id = :id AND u.version = :version""")
+                    .setParameter("name", user.getName())
+                    .setParameter("email", user.getEmail())
+                    .setParameter("age", user.getAge())
+                    .setParameter("id", user.getId())
+                    .setParameter("version", user.getVersion())
+                    .executeUpdate();
+            tx.commit();
+            HibernateUtil.recordWrite();
+            if (updated == 1) {
+                user.setVersion(user.getVersion() + 1);
+            }
+            log.debug("Обновлено строк по ID {} с проверкой версии: {}", user.getId(), updated);
+            return updated;
+        } catch (RuntimeException e) {
             if (tx != null && tx.getStatus().canRollback()) {
                 tx.rollback();
             }
-            log.error("Ошибка при обновлении пользователя", e);
+            logError("Ошибка при обновлении пользователя по ID {} с проверкой версии", user.getId(), e);
+            throw e;
         }
     }
 
@@ -112,12 +728,146 @@ public class UserDaoImpl implements UserDao {
             tx = session.beginTransaction();
             session.remove(user);
             tx.commit();
-            log.info("Пользователь удалён: {}", user);
-        } catch (Exception e) {
+            HibernateUtil.recordWrite();
+            log.debug("Пользователь удалён: id={}", user.getId());
+        } catch (RuntimeException e) {
             if (tx != null && tx.getStatus().canRollback()) {
                 tx.rollback();
             }
-            log.error("Ошибка при удалении пользователя", e);
+            logError("Ошибка при удалении пользователя", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Удаляет пользователя запросом {@code DELETE ... WHERE id = ?}. Запрос выполняется через JDBC,
+     * поэтому из кэша второго уровня удаляется только этот пользователь, а не весь регион.
+     *
+     * @param id идентификатор пользователя
+     * @return количество удалённых строк
+     */
+    @Override
+    public int deleteById(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
+        Transaction tx = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            tx = session.beginTransaction();
+            String email = session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_BY_ID)) {
+                    statement.setLong(1, id);
+                    return singleString(statement);
+                }
+            });
+            tx.commit();
+            HibernateUtil.recordWrite();
+
+            int deleted = email != null ? 1 : 0;
+            if (email != null) {
+                evictUser(session, id, email);
+            }
+            log.debug("Удалено строк по ID {}: {}", id, deleted);
+            return deleted;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.getStatus().canRollback()) {
+                tx.rollback();
+            }
+            logError("Ошибка при удалении пользователя по ID: {}", id, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Выполняет запрос и возвращает единственную строку из {@code RETURNING}; {@code null}, если строк нет.
+     */
+    private static String singleString(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    /**
+     * Удаляет из кэша второго уровня пользователя и соответствие его email → ID.
+     * Hibernate не видит изменений, сделанных через JDBC, а сброс регионов целиком задел бы всех пользователей.
+     */
+    private static void evictUser(Session session, Long id, String email) {
+        SessionFactoryImplementor factory = session.getSessionFactory().unwrap(SessionFactoryImplementor.class);
+        factory.getCache().evictEntityData(User.class, id);
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        NaturalIdDataAccess naturalIds = persister.getNaturalIdMapping().getCacheAccess();
+        if (naturalIds != null) {
+            naturalIds.evict(naturalIds.generateCacheKey(email, persister,
+                    session.unwrap(SharedSessionContractImplementor.class)));
+        }
+    }
+
+    /**
+     * Выполняет {@link #UPSERT} для порции пользователей с разными email. ID записываются в {@code ids}
+     * по email, а не в сами объекты: если транзакция откатится, переданные пользователи не изменятся.
+     */
+    private static void upsertChunk(Connection connection, List<User> chunk, Map<String, Long> ids,
+                                    List<Long> updatedIds) throws SQLException {
+        Array[] arrays = {
+                connection.createArrayOf("text", chunk.stream().map(User::getName).toArray()),
+                connection.createArrayOf("text", chunk.stream().map(User::getEmail).toArray()),
+                connection.createArrayOf("integer", chunk.stream().map(User::getAge).toArray()),
+                connection.createArrayOf("text", chunk.stream().map(user -> createdAtOrNow(user).toString()).toArray())};
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+            for (int i = 0; i < arrays.length; i++) {
+                statement.setArray(i + 1, arrays[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    ids.put(rs.getString("email"), id);
+                    if (!rs.getBoolean("inserted")) {
+                        updatedIds.add(id);
+                    }
+                }
+            }
+        } finally {
+            for (Array array : arrays) {
+                array.free();
+            }
+        }
+    }
+
+    private static LocalDateTime createdAtOrNow(User user) {
+        return user.getCreatedAt() != null ? user.getCreatedAt() : LocalDateTime.now();
+    }
+
+    /**
+     * Открывает сессию для методов чтения.
+     *
+     * <p>Сущности, загруженные такой сессией, сразу помечаются только для чтения, поэтому Hibernate
+     * не хранит для них копию состояния, а режим {@link FlushMode#MANUAL} исключает проверку изменений
+     * перед запросами. Обычная сессия, в отличие от {@link StatelessSession}, сохраняет кэш второго
+     * уровня и кэш естественного ключа, на которые опираются {@link #findById} и {@link #findByEmail}.
+     * При заданных репликах кэш только читается ({@link CacheMode#GET}): строка, прочитанная с отстающей
+     * реплики, не должна попасть в общий кэш и обслуживать чтения после того, как основной сервер её уже изменил.
+     * Возвращённые объекты после закрытия сессии ничем не отличаются от обычных отсоединённых сущностей.</p>
+     */
+    private static Session openReadOnlySession() {
+        Session session = HibernateUtil.getSessionFactory().withOptions()
+                .flushMode(FlushMode.MANUAL)
+                .openSession();
+        session.setDefaultReadOnly(true);
+        session.setCacheMode(HibernateUtil.hasReplicas() ? CacheMode.GET : CacheMode.NORMAL);
+        return session;
+    }
+
+    /**
+     * Пишет сообщение об ошибке, если не превышен лимит {@link #ERROR_LOG_SAMPLER}.
+     */
+    private static void logError(String message, Object... args) {
+        if (!ERROR_LOG_SAMPLER.tryAcquire()) {
+            return;
+        }
+        long suppressed = ERROR_LOG_SAMPLER.drainSuppressed();
+        if (suppressed > 0) {
+            log.warn("Пропущено сообщений об ошибках из-за ограничения частоты: {}", suppressed);
         }
+        log.error(message, args);
     }
 }
@@ -0,0 +1,183 @@
+package dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import util.CsvFormat;
+import util.HibernateUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая выгрузка таблицы {@code users} в CSV или NDJSON.
+ *
+ * <p>Строки читаются напрямую через JDBC серверным курсором по {@value #FETCH_SIZE} штук,
+ * без создания сущностей {@code User} и контекста персистентности, и сразу пишутся в канал
+ * через буферизованный writer (при необходимости — со сжатием gzip). Поэтому выгрузка
+ * всей таблицы требует небольшого фиксированного объёма памяти. Выгрузка только читает данные
+ * и при заданных репликах выполняется на одной из них.</p>
+ *
+ * <p>Поля в обоих форматах называются как столбцы таблицы ({@code created_at}), поэтому выгрузка
+ * в CSV принимается {@link UserCsvImporter} без изменений.</p>
+ */
+@Slf4j
+public class UserExporter {
+
+    static final int FETCH_SIZE = 1_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String SELECT_USERS = "SELECT id, name, email, age, created_at FROM users ORDER BY id";
+
+    /**
+     * Выгружает пользователей в файл. Файл с расширением {@code .gz} сжимается gzip.
+     *
+     * @param file   путь к файлу; существующий файл перезаписывается
+     * @param format формат выгрузки
+     * @return число выгруженных пользователей
+     */
+    public long export(Path file, ExportFormat format) {
+        boolean gzip = file.getFileName().toString().endsWith(".gz");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(channel, format, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать файл " + file, e);
+        }
+    }
+
+    /**
+     * Выгружает пользователей в канал. Канал не закрывается.
+     *
+     * @param channel канал, в который пишутся данные
+     * @param format  формат выгрузки
+     * @param gzip    сжимать ли вывод gzip
+     * @return число выгруженных пользователей
+     */
+    public long export(WritableByteChannel channel, ExportFormat format, boolean gzip) {
+        try (HibernateUtil.ReadScope ignored = HibernateUtil.readScope();
+             Session session = HibernateUtil.getSessionFactory().openSession()) {
+            long count = session.doReturningWork(connection -> write(connection, channel, format, gzip));
+            log.info("Выгружено пользователей: {} (формат {}, gzip={})", count, format, gzip);
+            return count;
+        }
+    }
+
+    private long write(Connection connection, WritableByteChannel channel, ExportFormat format, boolean gzip)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        // Курсор PostgreSQL с fetchSize работает только вне режима autocommit
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_USERS,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+
+            OutputStream out = Channels.newOutputStream(channel);
+            GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(gzipOut != null ? gzipOut : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+            long count = 0;
+            StringBuilder line = new StringBuilder(256);
+            if (format == ExportFormat.CSV) {
+                writer.write("id,name,email,age,created_at\n");
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    line.setLength(0);
+                    if (format == ExportFormat.CSV) {
+                        appendCsv(line, rs);
+                    } else {
+                        appendJson(line, rs);
+                    }
+                    writer.append(line);
+                    count++;
+                }
+            }
+
+            writer.flush();
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+            out.flush();
+            connection.commit();
+            return count;
+        } catch (IOException e) {
+            connection.rollback();
+            throw new UncheckedIOException("Ошибка записи при выгрузке пользователей", e);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            log.error("Ошибка при выгрузке пользователей", e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void appendCsv(StringBuilder line, ResultSet rs) throws SQLException {
+        line.append(rs.getLong(1)).append(',');
+        CsvFormat.appendField(line, rs.getString(2));
+        line.append(',');
+        CsvFormat.appendField(line, rs.getString(3));
+        line.append(',').append(rs.getInt(4)).append(',');
+        Timestamp createdAt = rs.getTimestamp(5);
+        if (createdAt != null) {
+            line.append(createdAt.toLocalDateTime());
+        }
+        line.append('\n');
+    }
+
+    private static void appendJson(StringBuilder line, ResultSet rs) throws SQLException {
+        line.append("{\"id\":").append(rs.getLong(1));
+        line.append(",\"name\":");
+        appendJsonString(line, rs.getString(2));
+        line.append(",\"email\":");
+        appendJsonString(line, rs.getString(3));
+        line.append(",\"age\":").append(rs.getInt(4));
+        line.append(",\"created_at\":");
+        Timestamp createdAt = rs.getTimestamp(5);
+        appendJsonString(line, createdAt == null ? null : createdAt.toLocalDateTime().toString());
+        line.append("}\n");
+    }
+
+    private static void appendJsonString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,22 @@
+package dao;
+
+import model.User;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска пользователей.
+ *
+ * @param users       пользователи страницы, упорядоченные по ID
+ * @param nextAfterId значение {@code afterId} для следующей страницы, или {@code null}, если страница последняя
+ * @param total       общее число найденных пользователей, или {@code null}, если подсчёт не запрашивался
+ */
+public record UserPage(List<User> users, Long nextAfterId, Long total) {
+
+    /**
+     * @return {@code true}, если за этой страницей есть ещё результаты
+     */
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
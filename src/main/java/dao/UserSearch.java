@@ -0,0 +1,28 @@
+package dao;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Условия поиска пользователей для {@link UserDao#search(UserSearch, PageRequest)}.
+ * Незаданные ({@code null}) условия в запрос не попадают; заданные объединяются через AND.
+ *
+ * @param minAge        минимальный возраст, включительно
+ * @param maxAge        максимальный возраст, включительно
+ * @param createdFrom   зарегистрирован не раньше этого момента, включительно
+ * @param createdBefore зарегистрирован раньше этого момента
+ * @param namePrefix    начало имени, с учётом регистра
+ */
+@Builder
+public record UserSearch(Integer minAge,
+                         Integer maxAge,
+                         LocalDateTime createdFrom,
+                         LocalDateTime createdBefore,
+                         String namePrefix) {
+
+    /**
+     * Поиск без условий.
+     */
+    public static final UserSearch ALL = UserSearch.builder().build();
+}
@@ -0,0 +1,113 @@
+package dao;
+
+import org.hibernate.query.SelectionQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HQL-запросы поиска пользователей и агрегатов по ним по {@link UserSearch}.
+ *
+ * <p>Текст запроса зависит только от того, какие условия заданы, а значения передаются параметрами.
+ * Поэтому фильтры одной формы дают один и тот же текст: Hibernate берёт разобранный запрос из кэша планов
+ * ({@code hibernate.query.plan_cache_max_size}), а драйвер PostgreSQL — уже подготовленное выражение.</p>
+ */
+final class UserSearchQuery {
+
+    private static final String FROM = "FROM User u";
+    private static final String KEYSET = "u.id > :afterId";
+
+    private final String conditions;
+    private final Map<String, Object> parameters;
+
+    private UserSearchQuery(String conditions, Map<String, Object> parameters) {
+        this.conditions = conditions;
+        this.parameters = parameters;
+    }
+
+    static UserSearchQuery of(UserSearch filter) {
+        StringBuilder conditions = new StringBuilder();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (filter != null) {
+            add(conditions, parameters, "u.age >= :minAge", "minAge", filter.minAge());
+            add(conditions, parameters, "u.age <= :maxAge", "maxAge", filter.maxAge());
+            add(conditions, parameters, "u.createdAt >= :createdFrom", "createdFrom", filter.createdFrom());
+            add(conditions, parameters, "u.createdAt < :createdBefore", "createdBefore", filter.createdBefore());
+            if (filter.namePrefix() != null) {
+                add(conditions, parameters, "u.name LIKE :namePrefix ESCAPE '\\'", "namePrefix",
+                        escapeLike(filter.namePrefix()) + "%");
+            }
+        }
+        return new UserSearchQuery(conditions.toString(), parameters);
+    }
+
+    /**
+     * @return запрос страницы; параметр {@code afterId} задаёт вызывающий
+     */
+    String selectHql() {
+        return FROM + " WHERE " + KEYSET + conditions + " ORDER BY u.id";
+    }
+
+    /**
+     * @return запрос общего числа найденных пользователей, без условия keyset-пагинации
+     */
+    String countHql() {
+        return aggregateHql("SELECT count(u)", "");
+    }
+
+    /**
+     * @return запрос числа, минимального, максимального и среднего возраста найденных пользователей
+     */
+    String ageStatsHql() {
+        return aggregateHql("SELECT new dao.AgeStats(count(u), min(u.age), max(u.age), avg(u.age))", "");
+    }
+
+    /**
+     * Ширина подставляется в текст запроса: выражение в SELECT и GROUP BY должно совпадать,
+     * а с параметрами PostgreSQL считал бы их разными выражениями.
+     *
+     * @param bucketWidth ширина столбца гистограммы, лет
+     * @return запрос гистограммы возрастов
+     */
+    String ageHistogramHql(int bucketWidth) {
+        String bucket = "(u.age / " + bucketWidth + ") * " + bucketWidth;
+        return aggregateHql("SELECT new dao.AgeBucket(" + bucket + ", count(u))",
+                " GROUP BY " + bucket + " ORDER BY " + bucket);
+    }
+
+    /**
+     * @param bucket интервал группировки
+     * @return запрос числа регистраций по интервалам
+     */
+    String signupsHql(TimeBucket bucket) {
+        String start = "date_trunc('" + bucket.unit() + "', u.createdAt)";
+        return aggregateHql("SELECT new dao.SignupBucket(" + start + ", count(u))",
+                " GROUP BY " + start + " ORDER BY " + start);
+    }
+
+    private String aggregateHql(String select, String tail) {
+        return select + " " + FROM
+                + (conditions.isEmpty() ? "" : " WHERE " + conditions.substring(" AND ".length()))
+                + tail;
+    }
+
+    /**
+     * Передаёт в запрос значения условий поиска.
+     */
+    <Q extends SelectionQuery<?>> Q bind(Q query) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private static void add(StringBuilder conditions, Map<String, Object> parameters,
+                            String condition, String name, Object value) {
+        if (value != null) {
+            conditions.append(" AND ").append(condition);
+            parameters.put(name, value);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,15 +1,23 @@
 package model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 
@@ -23,26 +31,55 @@ import java.time.LocalDateTime;
  * <ul>
  *   <li>{@link Entity} — класс управляется JPA и представляет таблицу в БД.</li>
  *   <li>{@link Table} — имя таблицы явно указано как {@code users}.</li>
- *   <li>{@code @Id} и {@code @GeneratedValue} — поле {@code id} является первичным ключом с автоинкрементом.</li>
+ *   <li>{@code @Id} и {@code @GeneratedValue} — поле {@code id} является первичным ключом, значения берутся
+ *   из последовательности {@code users_seq} блоками по {@value #ID_ALLOCATION_SIZE}, что позволяет Hibernate
+ *   объединять INSERT-запросы в JDBC-пакеты. Последовательность создаёт миграция {@code V1__create_users.sql};
+ *   в базе, где таблица уже заполнена, миграция сдвигает её за наибольший существующий {@code id}.</li>
  *   <li>{@code @Column(nullable = false)} — поля {@code name}, {@code email}, {@code createdAt} не могут быть {@code null}.</li>
  *   <li>{@code @Column(unique = true)} — значение {@code email} должно быть уникальным.</li>
  *   <li>{@code LocalDateTime createdAt} — дата и время создания пользователя.</li>
+ *   <li>{@link Cache} — сущность хранится в регионе {@value #CACHE_REGION} кэша второго уровня
+ *   (если он включён в {@code HibernateUtil}); стратегия {@code READ_WRITE} сохраняет согласованность
+ *   кэша при обновлении и удалении.</li>
+ *   <li>{@link NaturalId} — {@code email} является естественным ключом; соответствие email → ID
+ *   кэшируется в регионе {@value #NATURAL_ID_CACHE_REGION}.</li>
+ *   <li>{@link Version} — версия строки для оптимистической блокировки: каждое обновление увеличивает её,
+ *   а обновление с устаревшей версией не применяется.</li>
  * </ul>
  */
 @Builder
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
+    /**
+     * Шаг последовательности {@code users_seq}: сколько идентификаторов Hibernate резервирует за одно обращение к БД.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Имя региона кэша второго уровня для пользователей (см. {@code ehcache.xml}).
+     */
+    public static final String CACHE_REGION = "users";
+
+    /**
+     * Имя региона кэша естественного ключа (email → ID).
+     */
+    public static final String NATURAL_ID_CACHE_REGION = "users-natural-id";
+
     /**
      * Уникальный идентификатор пользователя (первичный ключ).
      * Генерируется автоматически при сохранении в базу данных.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -52,8 +89,10 @@ public class User {
     private String name;
 
     /**
-     * Email пользователя. Обязательное и уникальное поле.
+     * Email пользователя. Обязательное и уникальное поле, естественный ключ пользователя.
+     * Может меняться, поэтому естественный ключ объявлен изменяемым.
      */
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String email;
 
@@ -67,4 +106,12 @@ public class User {
      */
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    /**
+     * Версия строки. Заполняется Hibernate при сохранении и увеличивается при каждом обновлении.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
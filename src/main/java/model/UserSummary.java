@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Краткое представление пользователя для списков.
+ *
+ * <p>Заполняется проекцией {@code select new model.UserSummary(...)}, поэтому из базы читаются
+ * только эти три столбца, а объект не попадает в контекст персистентности и не требует
+ * снимка состояния для проверки изменений.</p>
+ *
+ * @param id    идентификатор пользователя
+ * @param name  имя пользователя
+ * @param email email пользователя
+ */
+public record UserSummary(Long id, String name, String email) {
+}
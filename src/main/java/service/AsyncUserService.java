@@ -0,0 +1,23 @@
+package service;
+
+import model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный вариант {@link UserService}: каждый метод сразу возвращает {@link CompletableFuture},
+ * а обращение к базе данных выполняется в фоне.
+ */
+public interface AsyncUserService extends AutoCloseable {
+    CompletableFuture<Void> createUser(String name, String email, int age);
+    CompletableFuture<User> getUserById(Long id);
+    CompletableFuture<List<User>> getUsersByIds(Collection<Long> ids);
+    CompletableFuture<User> getUserByEmail(String email);
+    CompletableFuture<Void> updateUser(Long id, String name, String email, int age);
+    CompletableFuture<Void> deleteUserById(Long id);
+
+    @Override
+    void close();
+}
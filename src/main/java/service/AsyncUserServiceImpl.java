@@ -0,0 +1,136 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import model.User;
+import util.ConnectionPool;
+import util.HibernateUtil;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Реализация {@link AsyncUserService} поверх синхронного {@link UserService}.
+ *
+ * <p>Каждая операция выполняется в отдельном виртуальном потоке, поэтому ожидание ответа БД
+ * не занимает платформенные потоки вызывающей стороны. Число одновременно выполняемых операций
+ * ограничено семафором: по умолчанию — размером пула соединений, чтобы лишние задачи ждали
+ * на семафоре, а не в очереди пула и не нагружали PostgreSQL сверх его возможностей.</p>
+ */
+@Slf4j
+public class AsyncUserServiceImpl implements AsyncUserService {
+
+    /**
+     * Ограничение по умолчанию, если пул соединений не включён.
+     */
+    static final int DEFAULT_MAX_IN_FLIGHT = 10;
+
+    private final UserService userService;
+    private final Semaphore inFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Создаёт сервис с ограничением, равным размеру пула соединений {@link HibernateUtil}.
+     *
+     * @param userService синхронный сервис, которому делегируются операции
+     */
+    public AsyncUserServiceImpl(UserService userService) {
+        this(userService, defaultMaxInFlight());
+    }
+
+    /**
+     * @param userService синхронный сервис, которому делегируются операции
+     * @param maxInFlight максимальное число одновременно выполняемых операций
+     */
+    public AsyncUserServiceImpl(UserService userService, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Ограничение параллелизма должно быть положительным");
+        }
+        this.userService = userService;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<Void> createUser(String name, String email, int age) {
+        return run(() -> userService.createUser(name, email, age));
+    }
+
+    @Override
+    public CompletableFuture<User> getUserById(Long id) {
+        return submit(() -> userService.getUserById(id));
+    }
+
+    /**
+     * Загружает пользователей параллельно, по одной задаче на ID.
+     *
+     * @param ids идентификаторы пользователей
+     * @return пользователи в порядке переданных ID; завершается ошибкой, если хотя бы один не найден
+     */
+    @Override
+    public CompletableFuture<List<User>> getUsersByIds(Collection<Long> ids) {
+        List<CompletableFuture<User>> futures = ids.stream()
+                .map(this::getUserById)
+                .toList();
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .toList());
+    }
+
+    @Override
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return submit(() -> userService.getUserByEmail(email));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(Long id, String name, String email, int age) {
+        return run(() -> userService.updateUser(id, name, email, age));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUserById(Long id) {
+        return run(() -> userService.deleteUserById(id));
+    }
+
+    /**
+     * Прекращает приём задач и дожидается завершения уже запущенных.
+     */
+    @Override
+    public void close() {
+        executor.close();
+        log.info("Асинхронный сервис пользователей остановлен.");
+    }
+
+    private CompletableFuture<Void> run(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return task.get();
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+
+    private static int defaultMaxInFlight() {
+        ConnectionPool pool = HibernateUtil.getConnectionPool();
+        return pool == null ? DEFAULT_MAX_IN_FLIGHT : pool.getMaxSize();
+    }
+}
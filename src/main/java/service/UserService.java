@@ -1,13 +1,40 @@
 package service;
 
+import dao.AgeBucket;
+import dao.AgeStats;
+import dao.PageRequest;
+import dao.SignupBucket;
+import dao.TimeBucket;
+import dao.UpsertResult;
+import dao.UserPage;
+import dao.UserSearch;
 import model.User;
+import model.UserSummary;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface UserService {
     void createUser(String name, String email, int age);
+    int createUsers(Collection<User> users);
     User getUserById(Long id);
+    User getUserByEmail(String email);
+    User getUserByEmailIgnoreCase(String email);
     List<User> getAllUsers();
+    List<User> getUsersPage(Long afterId, int limit);
+    List<UserSummary> getUserSummaries(Long afterId, int limit);
+    UserPage searchUsers(UserSearch filter, PageRequest page);
+    long countUsers();
+    long countUsers(UserSearch filter);
+    AgeStats getAgeStats(UserSearch filter);
+    List<AgeBucket> getAgeHistogram(UserSearch filter, int bucketWidth);
+    List<SignupBucket> getSignups(UserSearch filter, TimeBucket bucket);
+    Stream<User> streamAllUsers();
     void updateUser(Long id, String name, String email, int age);
+    User modifyUser(Long id, Consumer<User> modification);
+    UpsertResult upsertUser(String name, String email, int age);
+    UpsertResult upsertUsers(Collection<User> users);
     void deleteUserById(Long id);
 }
@@ -1,20 +1,84 @@
 package service;
 
+import cache.OffHeapUserCache;
+import dao.AgeBucket;
+import dao.AgeStats;
+import dao.PageRequest;
+import dao.SignupBucket;
+import dao.TimeBucket;
+import dao.UpsertResult;
 import dao.UserDao;
+import dao.UserPage;
+import dao.UserSearch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
 import model.User;
+import model.UserSummary;
 import lombok.extern.slf4j.Slf4j;
+import util.AppMetrics;
+import util.AuditLog;
+import util.RetryPolicy;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 public class UserServiceImpl implements UserService {
 
+    /**
+     * Счётчик обновлений, не применённых из-за параллельного изменения пользователя.
+     */
+    public static final String UPDATE_CONFLICTS = "user.update.conflicts";
+
+    /**
+     * Счётчик обновлений, отклонённых после исчерпания всех попыток.
+     */
+    public static final String UPDATE_RETRIES_EXHAUSTED = "user.update.retries.exhausted";
+
     private final UserDao userDao;
+    private final RetryPolicy retryPolicy;
+    private final OffHeapUserCache userCache;
+    private final Counter updateConflicts;
+    private final Counter retriesExhausted;
 
     public UserServiceImpl(UserDao userDao) {
+        this(userDao, RetryPolicy.DEFAULT, AppMetrics.registry());
+    }
+
+    /**
+     * @param userDao     DAO пользователей
+     * @param retryPolicy политика повторов для {@link #modifyUser}
+     * @param registry    реестр, в котором регистрируются счётчики конфликтов
+     */
+    public UserServiceImpl(UserDao userDao, RetryPolicy retryPolicy, MeterRegistry registry) {
+        this(userDao, retryPolicy, registry, null);
+    }
+
+    /**
+     * @param userDao     DAO пользователей
+     * @param retryPolicy политика повторов для {@link #modifyUser}
+     * @param registry    реестр, в котором регистрируются счётчики конфликтов
+     * @param userCache   кэш вне кучи для {@link #getUserById}, или {@code null}, чтобы не кэшировать.
+     *                    Кэш не знает об отставании реплик, поэтому промахи читаются с основного сервера.
+     *                    Изменения, сделанные в обход этого сервиса (например, {@link WriteBehindUserService}),
+     *                    кэш не видит — после них нужен {@link OffHeapUserCache#clear()}
+     */
+    public UserServiceImpl(UserDao userDao, RetryPolicy retryPolicy, MeterRegistry registry,
+                           OffHeapUserCache userCache) {
         this.userDao = userDao;
+        this.retryPolicy = retryPolicy;
+        this.userCache = userCache;
+        this.updateConflicts = Counter.builder(UPDATE_CONFLICTS)
+                .description("Обновления пользователя, прерванные параллельной записью")
+                .register(registry);
+        this.retriesExhausted = Counter.builder(UPDATE_RETRIES_EXHAUSTED)
+                .description("Обновления пользователя, отклонённые после всех попыток")
+                .register(registry);
     }
 
     @Override
@@ -30,8 +94,32 @@ public class UserServiceImpl implements UserService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
+        // save пробрасывает ошибку записи, поэтому событие пишется только после фиксации транзакции
         userDao.save(user);
-        log.info("Пользователь создан: {}", user);
+        AuditLog.event(AuditLog.USER_CREATED, user.getId());
+    }
+
+    @Override
+    public int createUsers(Collection<User> users) {
+        if (users == null) {
+            throw new IllegalArgumentException("Список пользователей обязателен");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (User user : users) {
+            if (user == null || user.getName() == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("Имя и email обязательны");
+            }
+            if (user.getCreatedAt() == null) {
+                user.setCreatedAt(now);
+            }
+        }
+
+        int saved = userDao.saveAll(users);
+        if (saved > 0) {
+            AuditLog.bulkEvent(AuditLog.USERS_CREATED, saved);
+        }
+        return saved;
     }
 
     @Override
@@ -40,37 +128,273 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("ID не может быть null");
         }
 
-        User user = userDao.findById(id);
+        if (userCache != null) {
+            User cached = userCache.get(id);
+            if (cached != null) {
+                log.debug("Пользователь найден в кэше: id={}", id);
+                return cached;
+            }
+        }
+
+        long loadStamp = userCache == null ? 0 : userCache.beginLoad(id);
+        User user = userCache == null ? userDao.findById(id) : userDao.findByIdFromPrimary(id);
+        if (user == null) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+        if (userCache != null) {
+            userCache.putLoaded(user, loadStamp);
+        }
+
+        log.debug("Найден пользователь: id={}", id);
+        return user;
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        if (email == null) {
+            throw new IllegalArgumentException("Email не может быть null");
+        }
+
+        User user = userDao.findByEmail(email);
+        if (user == null) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+
+        log.debug("Найден пользователь по email: id={}", user.getId());
+        return user;
+    }
+
+    @Override
+    public User getUserByEmailIgnoreCase(String email) {
+        if (email == null) {
+            throw new IllegalArgumentException("Email не может быть null");
+        }
+
+        User user = userDao.findByEmailIgnoreCase(email);
         if (user == null) {
             throw new NoSuchElementException("Пользователь не найден");
         }
 
-        log.info("Найден пользователь: {}", user);
+        log.debug("Найден пользователь по email без учёта регистра: id={}", user.getId());
         return user;
     }
 
     @Override
     public void updateUser(Long id, String name, String email, int age) {
-        User user = getUserById(id);
-        user.setName(name);
-        user.setEmail(email);
-        user.setAge(age);
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
 
-        userDao.update(user);
-        log.info("Пользователь обновлён: {}", user);
+        int updated = userDao.updateById(id, name, email, age);
+        invalidateCached(id);
+        if (updated == 0) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+        AuditLog.event(AuditLog.USER_UPDATED, id);
+    }
+
+    /**
+     * Читает пользователя, применяет к нему изменение и записывает результат с проверкой версии.
+     * Если пользователя успел изменить кто-то другой, всё повторяется на свежей копии после
+     * задержки по {@link RetryPolicy}. Блокировки строк не используются. Пользователь читается с основного
+     * сервера в обход кэша второго уровня ({@link UserDao#findByIdFromPrimary}): копия с реплики или из кэша
+     * может отставать, и тогда каждая попытка заканчивалась бы конфликтом версий.
+     *
+     * @param id           ID пользователя
+     * @param modification изменение имени, email или возраста; может вызываться несколько раз
+     *                     и не должно менять ID и версию
+     * @return пользователь после успешного обновления
+     * @throws OptimisticLockException если все попытки завершились конфликтом
+     */
+    @Override
+    public User modifyUser(Long id, Consumer<User> modification) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
+        if (modification == null) {
+            throw new IllegalArgumentException("Изменение не может быть null");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            User user = userDao.findByIdFromPrimary(id);
+            if (user == null) {
+                throw new NoSuchElementException("Пользователь не найден");
+            }
+            modification.accept(user);
+            if (user.getName() == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("Имя и email обязательны");
+            }
+
+            if (userDao.updateIfVersion(user) == 1) {
+                invalidateCached(id);
+                AuditLog.event(AuditLog.USER_UPDATED, id);
+                return user;
+            }
+
+            updateConflicts.increment();
+            if (attempt >= retryPolicy.maxAttempts()) {
+                retriesExhausted.increment();
+                throw new OptimisticLockException("Пользователь id=" + id + " изменён параллельно, попыток: " + attempt);
+            }
+            log.debug("Конфликт версий при обновлении пользователя id={}, попытка {}", id, attempt);
+            try {
+                Thread.sleep(retryPolicy.backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OptimisticLockException("Ожидание повтора обновления прервано", e);
+            }
+        }
+    }
+
+    @Override
+    public UpsertResult upsertUser(String name, String email, int age) {
+        if (name == null || email == null) {
+            throw new IllegalArgumentException("Имя и email обязательны");
+        }
+
+        User user = User.builder()
+                .name(name)
+                .email(email)
+                .age(age)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        UpsertResult result = userDao.upsertByEmail(user);
+        invalidateCached(user.getId());
+        AuditLog.event(result.inserted() > 0 ? AuditLog.USER_CREATED : AuditLog.USER_UPDATED, user.getId());
+        return result;
+    }
+
+    @Override
+    public UpsertResult upsertUsers(Collection<User> users) {
+        if (users == null) {
+            throw new IllegalArgumentException("Список пользователей обязателен");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (User user : users) {
+            if (user == null || user.getName() == null || user.getEmail() == null) {
+                throw new IllegalArgumentException("Имя и email обязательны");
+            }
+            if (user.getCreatedAt() == null) {
+                user.setCreatedAt(now);
+            }
+        }
+
+        UpsertResult result = userDao.upsertAll(users);
+        users.forEach(user -> invalidateCached(user.getId()));
+        if (result.inserted() + result.updated() > 0) {
+            AuditLog.bulkEvent(AuditLog.USERS_UPSERTED, result.inserted() + result.updated());
+        }
+        return result;
     }
 
     @Override
     public void deleteUserById(Long id) {
-        User user = getUserById(id);
-        userDao.delete(user);
-        log.info("Пользователь удалён: {}", user);
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
+
+        int deleted = userDao.deleteById(id);
+        invalidateCached(id);
+        if (deleted == 0) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+        AuditLog.event(AuditLog.USER_DELETED, id);
     }
 
     @Override
     public List<User> getAllUsers() {
         List<User> users = userDao.findAll();
-        log.info("Получено пользователей: {}", users.size());
+        log.debug("Получено пользователей: {}", users.size());
         return users;
     }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+
+        List<User> page = userDao.findPage(afterId, limit);
+        log.debug("Получена страница пользователей после ID {}: {}", afterId, page.size());
+        return page;
+    }
+
+    @Override
+    public List<UserSummary> getUserSummaries(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+
+        List<UserSummary> page = userDao.findSummaries(afterId, limit);
+        log.debug("Получена страница кратких данных пользователей после ID {}: {}", afterId, page.size());
+        return page;
+    }
+
+    @Override
+    public UserPage searchUsers(UserSearch filter, PageRequest page) {
+        if (page == null) {
+            throw new IllegalArgumentException("Страница не может быть null");
+        }
+
+        UserPage result = userDao.search(filter == null ? UserSearch.ALL : filter, page);
+        log.debug("Поиск пользователей {}: найдено на странице {}", filter, result.users().size());
+        return result;
+    }
+
+    @Override
+    public long countUsers() {
+        return countUsers(UserSearch.ALL);
+    }
+
+    @Override
+    public long countUsers(UserSearch filter) {
+        long count = userDao.count(filter == null ? UserSearch.ALL : filter);
+        log.debug("Пользователей по условиям {}: {}", filter, count);
+        return count;
+    }
+
+    @Override
+    public AgeStats getAgeStats(UserSearch filter) {
+        return userDao.ageStats(filter == null ? UserSearch.ALL : filter);
+    }
+
+    @Override
+    public List<AgeBucket> getAgeHistogram(UserSearch filter, int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина столбца должна быть положительной");
+        }
+
+        return userDao.ageHistogram(filter == null ? UserSearch.ALL : filter, bucketWidth);
+    }
+
+    @Override
+    public List<SignupBucket> getSignups(UserSearch filter, TimeBucket bucket) {
+        if (bucket == null) {
+            throw new IllegalArgumentException("Интервал группировки не может быть null");
+        }
+
+        return userDao.signups(filter == null ? UserSearch.ALL : filter, bucket);
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        return userDao.streamAll();
+    }
+
+    /**
+     * Удаляет пользователя из кэша после записи в БД. Пользователь без ID (upsert не вернул его)
+     * мог быть любым, поэтому кэш очищается целиком.
+     */
+    private void invalidateCached(Long id) {
+        if (userCache == null) {
+            return;
+        }
+        if (id == null) {
+            userCache.clear();
+        } else {
+            userCache.invalidate(id);
+        }
+    }
 }
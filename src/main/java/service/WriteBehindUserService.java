@@ -0,0 +1,16 @@
+package service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Отложенная запись пользователей: вызовы не ждут отдельной транзакции, а попадают в ограниченный
+ * буфер, который записывается в базу пачками. Возвращённый {@link CompletableFuture} завершается
+ * после фиксации транзакции, в которую попала запись.
+ */
+public interface WriteBehindUserService extends AutoCloseable {
+    CompletableFuture<Void> createUser(String name, String email, int age);
+    CompletableFuture<Void> updateUser(Long id, String name, String email, int age);
+
+    @Override
+    void close();
+}
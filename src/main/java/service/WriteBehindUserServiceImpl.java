@@ -0,0 +1,265 @@
+package service;
+
+import dao.UserDao;
+import lombok.extern.slf4j.Slf4j;
+import model.User;
+import util.AuditLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация {@link WriteBehindUserService} с буфером фиксированной ёмкости и одним потоком записи.
+ *
+ * <p>Поток записи забирает из буфера до {@code batchSize} записей и передаёт их в
+ * {@link UserDao#writeBatch} одной транзакцией — как только в буфере набралось {@code batchSize} записей
+ * или самая старая запись ждёт дольше {@code maxDelay}. Так одна фиксация обслуживает много вызовов.</p>
+ *
+ * <ul>
+ *   <li>Несколько изменений одного пользователя, ещё не забранных потоком записи, объединяются:
+ *   в базу попадают последние значения, а все вызовы получают один и тот же {@link CompletableFuture}.</li>
+ *   <li>Если буфер заполнен, вызывающий поток ждёт, пока поток записи не освободит место.</li>
+ *   <li>Если пачка не записалась, её записи повторяются по одной, чтобы ошибка одной записи
+ *   (например, занятый email) не отменяла остальные.</li>
+ * </ul>
+ *
+ * <p>Пока запись не зафиксирована, методы чтения {@link UserService} её не видят.
+ * Зависимые стадии, добавленные к результату без {@code *Async}, выполняются в потоке записи,
+ * поэтому тяжёлую обработку результата следует переносить в свой пул.</p>
+ */
+@Slf4j
+public class WriteBehindUserServiceImpl implements WriteBehindUserService {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final int DEFAULT_BATCH_SIZE = 500;
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(20);
+
+    private final UserDao userDao;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    /**
+     * Записи в порядке поступления: изменения — по ID пользователя, новые пользователи — по собственному ключу.
+     */
+    private final LinkedHashMap<Object, Pending> pending = new LinkedHashMap<>();
+    private boolean closed;
+    private final Thread writer;
+
+    public WriteBehindUserServiceImpl(UserDao userDao) {
+        this(userDao, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * @param userDao   DAO, через которое записываются пачки
+     * @param capacity  сколько записей может ждать в буфере
+     * @param batchSize сколько записей фиксируется одной транзакцией
+     * @param maxDelay  сколько запись может ждать, пока наберётся пачка
+     */
+    public WriteBehindUserServiceImpl(UserDao userDao, int capacity, int batchSize, Duration maxDelay) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Ёмкость буфера и размер пачки должны быть положительными");
+        }
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Задержка записи не может быть отрицательной");
+        }
+        this.userDao = userDao;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = Thread.ofPlatform().name("user-write-behind").daemon().start(this::runWriter);
+    }
+
+    @Override
+    public CompletableFuture<Void> createUser(String name, String email, int age) {
+        if (name == null || email == null) {
+            throw new IllegalArgumentException("Имя и email обязательны");
+        }
+
+        User user = User.builder()
+                .name(name)
+                .email(email)
+                .age(age)
+                .createdAt(LocalDateTime.now())
+                .build();
+        return enqueue(new Object(), user, true);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(Long id, String name, String email, int age) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID не может быть null");
+        }
+
+        User change = User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .age(age)
+                .build();
+        return enqueue(id, change, false);
+    }
+
+    /**
+     * Прекращает приём записей, записывает всё, что осталось в буфере, и останавливает поток записи.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Буфер отложенной записи пользователей остановлен.");
+    }
+
+    private CompletableFuture<Void> enqueue(Object key, User user, boolean insert) {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Буфер отложенной записи закрыт");
+                }
+                Pending existing = pending.get(key);
+                if (existing != null) {
+                    existing.user.setName(user.getName());
+                    existing.user.setEmail(user.getEmail());
+                    existing.user.setAge(user.getAge());
+                    return existing.future;
+                }
+                if (pending.size() < capacity) {
+                    break;
+                }
+                notFull.await();
+            }
+
+            Pending entry = new Pending(user, insert, System.nanoTime());
+            pending.put(key, entry);
+            if (pending.size() >= batchSize || pending.size() == 1) {
+                flushNeeded.signal();
+            }
+            return entry.future;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch;
+        while ((batch = takeBatch()) != null) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Ждёт, пока наберётся пачка или истечёт задержка самой старой записи, и забирает пачку из буфера.
+     *
+     * @return пачка записей, или {@code null}, если буфер закрыт и пуст
+     */
+    private List<Pending> takeBatch() {
+        lock.lock();
+        try {
+            while (pending.size() < batchSize && !closed) {
+                if (pending.isEmpty()) {
+                    flushNeeded.awaitUninterruptibly();
+                    continue;
+                }
+                long waitNanos = maxDelayNanos - (System.nanoTime() - pending.firstEntry().getValue().enqueuedNanos);
+                if (waitNanos <= 0) {
+                    break;
+                }
+                try {
+                    flushNeeded.awaitNanos(waitNanos);
+                } catch (InterruptedException e) {
+                    // Поток записи не прерывается извне; прерывание означает остановку — дописываем буфер
+                    closed = true;
+                    notFull.signalAll();
+                }
+            }
+            if (pending.isEmpty()) {
+                return null;
+            }
+
+            List<Pending> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Pending> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<User> inserts = new ArrayList<>();
+        List<User> updates = new ArrayList<>();
+        for (Pending entry : batch) {
+            (entry.insert ? inserts : updates).add(entry.user);
+        }
+
+        Set<Long> missing;
+        try {
+            missing = userDao.writeBatch(inserts, updates);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().future.completeExceptionally(e);
+            } else {
+                log.warn("Пачка из {} записей не зафиксирована, записи повторяются по одной", batch.size());
+                batch.forEach(entry -> write(List.of(entry)));
+            }
+            return;
+        }
+
+        for (Pending entry : batch) {
+            if (!entry.insert && missing.contains(entry.user.getId())) {
+                entry.future.completeExceptionally(new NoSuchElementException("Пользователь не найден"));
+                continue;
+            }
+            AuditLog.event(entry.insert ? AuditLog.USER_CREATED : AuditLog.USER_UPDATED, entry.user.getId());
+            entry.future.complete(null);
+        }
+        log.debug("Зафиксирована пачка отложенной записи: {}", batch.size());
+    }
+
+    /**
+     * Запись, ожидающая в буфере.
+     */
+    private static final class Pending {
+        final User user;
+        final boolean insert;
+        final long enqueuedNanos;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(User user, boolean insert, long enqueuedNanos) {
+            this.user = user;
+            this.insert = insert;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
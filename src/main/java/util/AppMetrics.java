@@ -0,0 +1,60 @@
+package util;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Точка доступа к метрикам приложения.
+ *
+ * <p>Все метрики регистрируются в составном реестре Micrometer {@link Metrics#globalRegistry}.
+ * Сам по себе он ничего не хранит: конкретные реестры (JMX, Prometheus, тестовый
+ * {@code SimpleMeterRegistry} и т.д.) подключаются через {@link #addRegistry(MeterRegistry)}.</p>
+ *
+ * <p>Настройки:</p>
+ * <ul>
+ *   <li>{@code metrics.enabled} — включает сбор статистики Hibernate и её публикацию в реестре.</li>
+ *   <li>{@code metrics.jmx.enabled} — подключает реестр JMX.</li>
+ * </ul>
+ */
+@Slf4j
+public final class AppMetrics {
+
+    public static final String ENABLED = "metrics.enabled";
+    public static final String JMX_ENABLED = "metrics.jmx.enabled";
+
+    private static JmxMeterRegistry jmxRegistry;
+
+    private AppMetrics() {
+    }
+
+    /**
+     * @return реестр, в котором регистрируются метрики приложения
+     */
+    public static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+
+    /**
+     * Подключает реестр, в который будут публиковаться метрики.
+     *
+     * @param registry реестр конкретной системы мониторинга
+     */
+    public static void addRegistry(MeterRegistry registry) {
+        Metrics.addRegistry(registry);
+    }
+
+    /**
+     * Подключает публикацию метрик через JMX (домен {@code metrics}). Повторный вызов ничего не делает.
+     */
+    public static synchronized void enableJmx() {
+        if (jmxRegistry == null) {
+            jmxRegistry = new JmxMeterRegistry(JmxConfig.DEFAULT, Clock.SYSTEM);
+            addRegistry(jmxRegistry);
+            log.info("Публикация метрик через JMX включена.");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Аудит изменений пользователей в компактном структурированном виде.
+ *
+ * <p>Вместо {@code toString()} всей сущности пишется одна строка {@code key=value}, например
+ * {@code action=user.updated userId=42}. События идут в отдельный логгер {@code audit},
+ * который в {@code logback.xml} выводится через собственный асинхронный аппендер.</p>
+ */
+@Slf4j(topic = "audit")
+public final class AuditLog {
+
+    public static final String USER_CREATED = "user.created";
+    public static final String USERS_CREATED = "users.created";
+    public static final String USER_UPDATED = "user.updated";
+    public static final String USERS_UPSERTED = "users.upserted";
+    public static final String USER_DELETED = "user.deleted";
+
+    private AuditLog() {
+    }
+
+    /**
+     * Записывает событие над одним пользователем.
+     *
+     * @param action тип события
+     * @param userId идентификатор пользователя
+     */
+    public static void event(String action, Long userId) {
+        log.info("action={} userId={}", action, userId);
+    }
+
+    /**
+     * Записывает событие над группой пользователей.
+     *
+     * @param action тип события
+     * @param count  число затронутых пользователей
+     */
+    public static void bulkEvent(String action, long count) {
+        log.info("action={} count={}", action, count);
+    }
+}
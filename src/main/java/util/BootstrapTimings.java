@@ -0,0 +1,60 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Время, затраченное на этапы инициализации {@link HibernateUtil}, в порядке их выполнения.
+ *
+ * @param phases этапы инициализации
+ */
+public record BootstrapTimings(List<Phase> phases) {
+
+    /**
+     * Один этап инициализации.
+     *
+     * @param name   название этапа
+     * @param millis длительность, мс
+     */
+    public record Phase(String name, long millis) {
+    }
+
+    public BootstrapTimings {
+        phases = List.copyOf(phases);
+    }
+
+    /**
+     * @return суммарная длительность всех этапов, мс
+     */
+    public long totalMillis() {
+        return phases.stream().mapToLong(Phase::millis).sum();
+    }
+
+    @Override
+    public String toString() {
+        return phases.stream()
+                .map(phase -> phase.name() + " " + phase.millis() + " мс")
+                .collect(Collectors.joining(", ", "", ", всего " + totalMillis() + " мс"));
+    }
+
+    /**
+     * Замеряет этапы подряд: каждый этап длится от конца предыдущего до вызова {@link #mark(String)}.
+     */
+    static final class Recorder {
+
+        private final List<Phase> phases = new ArrayList<>();
+        private long phaseStart = System.nanoTime();
+
+        void mark(String name) {
+            long now = System.nanoTime();
+            phases.add(new Phase(name, TimeUnit.NANOSECONDS.toMillis(now - phaseStart)));
+            phaseStart = now;
+        }
+
+        BootstrapTimings finish() {
+            return new BootstrapTimings(phases);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package util;
+
+/**
+ * Статистика одного региона кэша второго уровня.
+ *
+ * @param region            имя региона
+ * @param hits              сколько раз сущность была найдена в кэше
+ * @param misses            сколько раз сущности не оказалось в кэше и потребовался запрос к БД
+ * @param puts              сколько раз сущность была помещена в кэш
+ * @param evictions         сколько записей вытеснено провайдером кэша из-за ограничения размера
+ * @param elementsInMemory  текущее число записей в регионе, или {@code -1}, если провайдер его не сообщает
+ */
+public record CacheRegionStats(String region,
+                               long hits,
+                               long misses,
+                               long puts,
+                               long evictions,
+                               long elementsInMemory) {
+}
@@ -0,0 +1,236 @@
+package util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул JDBC-соединений на основе HikariCP, который передаётся в Hibernate вместо
+ * встроенного {@code DriverManager}-пула.
+ *
+ * <p>Настраивается свойствами с префиксом {@code pool.} из тех же {@link Properties},
+ * что и Hibernate. Параметры подключения берутся из {@code hibernate.connection.*}.</p>
+ *
+ * <ul>
+ *   <li>{@code pool.enabled} — включает пул (по умолчанию {@code false}).</li>
+ *   <li>{@code pool.minIdle}, {@code pool.maxSize} — минимальное число простаивающих и максимальное число соединений.</li>
+ *   <li>{@code pool.connectionTimeoutMs} — сколько ждать свободного соединения.</li>
+ *   <li>{@code pool.idleTimeoutMs}, {@code pool.maxLifetimeMs} — время жизни простаивающего и любого соединения.</li>
+ *   <li>{@code pool.leakDetectionThresholdMs} — порог, после которого незакрытое соединение считается утечкой (0 — выключено).</li>
+ *   <li>{@code pool.statementCacheSize}, {@code pool.prepareThreshold} — кэш подготовленных выражений драйвера PostgreSQL.</li>
+ *   <li>{@code pool.lazyStart} — не открывать соединение при создании пула: первое соединение открывается
+ *   по первому запросу, а недоступная база обнаруживается только тогда (по умолчанию {@code false}).</li>
+ * </ul>
+ *
+ * <p>Помимо соединений пул собирает метрики: число активных, простаивающих и ожидающих
+ * соединения потоков, а также задержку получения соединения (см. {@link #stats()}).</p>
+ */
+@Slf4j
+public class ConnectionPool implements AutoCloseable, MeterBinder {
+
+    public static final String ENABLED = "pool.enabled";
+    public static final String MIN_IDLE = "pool.minIdle";
+    public static final String MAX_SIZE = "pool.maxSize";
+    public static final String CONNECTION_TIMEOUT_MS = "pool.connectionTimeoutMs";
+    public static final String IDLE_TIMEOUT_MS = "pool.idleTimeoutMs";
+    public static final String MAX_LIFETIME_MS = "pool.maxLifetimeMs";
+    public static final String LEAK_DETECTION_THRESHOLD_MS = "pool.leakDetectionThresholdMs";
+    public static final String STATEMENT_CACHE_SIZE = "pool.statementCacheSize";
+    public static final String PREPARE_THRESHOLD = "pool.prepareThreshold";
+    public static final String LAZY_START = "pool.lazyStart";
+
+    /**
+     * Префикс имён метрик пула.
+     */
+    public static final String METRIC_PREFIX = "pool.connections.";
+
+    private final HikariDataSource dataSource;
+    private final AcquisitionTracker tracker = new AcquisitionTracker();
+
+    private ConnectionPool(HikariConfig config) {
+        config.setMetricsTrackerFactory(tracker);
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * Проверяет, включён ли пул в переданных настройках.
+     *
+     * @param settings настройки приложения
+     * @return {@code true}, если задано {@code pool.enabled=true}
+     */
+    public static boolean isEnabled(Properties settings) {
+        return Boolean.parseBoolean(settings.getProperty(ENABLED, "false"));
+    }
+
+    /**
+     * Создаёт пул по настройкам {@code hibernate.connection.*} и {@code pool.*}.
+     *
+     * @param settings настройки приложения
+     * @param poolName имя пула (используется в логах и JMX)
+     * @return запущенный пул соединений
+     */
+    public static ConnectionPool create(Properties settings, String poolName) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(settings.getProperty("hibernate.connection.url"));
+        config.setUsername(settings.getProperty("hibernate.connection.username"));
+        config.setPassword(settings.getProperty("hibernate.connection.password"));
+        String driver = settings.getProperty("hibernate.connection.driver_class");
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+
+        config.setMinimumIdle(intSetting(settings, MIN_IDLE, 2));
+        config.setMaximumPoolSize(intSetting(settings, MAX_SIZE, 10));
+        config.setConnectionTimeout(longSetting(settings, CONNECTION_TIMEOUT_MS, 30_000));
+        config.setIdleTimeout(longSetting(settings, IDLE_TIMEOUT_MS, 600_000));
+        config.setMaxLifetime(longSetting(settings, MAX_LIFETIME_MS, 1_800_000));
+        config.setLeakDetectionThreshold(longSetting(settings, LEAK_DETECTION_THRESHOLD_MS, 0));
+        config.setRegisterMbeans(true);
+        if (Boolean.parseBoolean(settings.getProperty(LAZY_START, "false"))) {
+            config.setInitializationFailTimeout(-1);
+        }
+
+        // Кэширование подготовленных выражений делает драйвер PostgreSQL, а не пул
+        config.addDataSourceProperty("preparedStatementCacheQueries", intSetting(settings, STATEMENT_CACHE_SIZE, 256));
+        config.addDataSourceProperty("prepareThreshold", intSetting(settings, PREPARE_THRESHOLD, 5));
+        // Драйвер склеивает пакет INSERT-ов в один многострочный INSERT
+        config.addDataSourceProperty("reWriteBatchedInserts", true);
+
+        ConnectionPool pool = new ConnectionPool(config);
+        log.info("Пул соединений {} запущен: minIdle={}, maxSize={}",
+                poolName, config.getMinimumIdle(), config.getMaximumPoolSize());
+        return pool;
+    }
+
+    /**
+     * @return источник соединений, который передаётся в Hibernate
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return имя пула
+     */
+    public String getName() {
+        return dataSource.getPoolName();
+    }
+
+    /**
+     * @return максимальный размер пула
+     */
+    public int getMaxSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    /**
+     * Возвращает текущее состояние пула и накопленную статистику получения соединений.
+     *
+     * @return снимок метрик пула
+     */
+    public ConnectionPoolStats stats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        long acquired = tracker.acquiredCount.sum();
+        long totalNanos = tracker.acquiredNanos.sum();
+        return new ConnectionPoolStats(
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                pool == null ? 0 : pool.getTotalConnections(),
+                acquired,
+                acquired == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / acquired),
+                TimeUnit.NANOSECONDS.toMicros(tracker.maxAcquiredNanos.get()),
+                tracker.timeouts.sum());
+    }
+
+    /**
+     * Возвращает текущую нагрузку на пул: число выданных соединений и ожидающих потоков.
+     * В отличие от {@link #stats()}, не создаёт объектов.
+     */
+    int load() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+    }
+
+    /**
+     * Публикует состояние пула в реестре метрик под префиксом {@value #METRIC_PREFIX}.
+     *
+     * @param registry реестр метрик
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String pool = dataSource.getPoolName();
+        Gauge.builder(METRIC_PREFIX + "active", this, p -> p.stats().active()).tag("pool", pool).register(registry);
+        Gauge.builder(METRIC_PREFIX + "idle", this, p -> p.stats().idle()).tag("pool", pool).register(registry);
+        Gauge.builder(METRIC_PREFIX + "pending", this, p -> p.stats().pending()).tag("pool", pool).register(registry);
+        Gauge.builder(METRIC_PREFIX + "total", this, p -> p.stats().total()).tag("pool", pool).register(registry);
+        Gauge.builder(METRIC_PREFIX + "acquire.avg", this, p -> p.stats().avgAcquireMicros())
+                .baseUnit("microseconds").tag("pool", pool).register(registry);
+        Gauge.builder(METRIC_PREFIX + "acquire.max", this, p -> p.stats().maxAcquireMicros())
+                .baseUnit("microseconds").tag("pool", pool).register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + "timeouts", tracker, t -> t.timeouts.sum())
+                .tag("pool", pool).register(registry);
+    }
+
+    /**
+     * Закрывает все соединения пула.
+     */
+    @Override
+    public void close() {
+        dataSource.close();
+        log.info("Пул соединений {} закрыт.", dataSource.getPoolName());
+    }
+
+    private static int intSetting(Properties settings, String key, int defaultValue) {
+        String value = settings.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longSetting(Properties settings, String key, long defaultValue) {
+        String value = settings.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Собирает задержку получения соединения из HikariCP без блокировок.
+     */
+    private static final class AcquisitionTracker implements MetricsTrackerFactory, IMetricsTracker {
+
+        private final LongAdder acquiredCount = new LongAdder();
+        private final LongAdder acquiredNanos = new LongAdder();
+        private final AtomicLong maxAcquiredNanos = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return this;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquiredCount.increment();
+            acquiredNanos.add(elapsedAcquiredNanos);
+            maxAcquiredNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+}
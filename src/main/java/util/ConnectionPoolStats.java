@@ -0,0 +1,23 @@
+package util;
+
+/**
+ * Снимок состояния пула соединений.
+ *
+ * @param active            соединения, выданные потокам в данный момент
+ * @param idle              простаивающие соединения
+ * @param pending           потоки, ожидающие свободного соединения
+ * @param total             всего открытых соединений
+ * @param acquiredCount     сколько раз соединение было выдано с момента запуска
+ * @param avgAcquireMicros  средняя задержка получения соединения, мкс
+ * @param maxAcquireMicros  максимальная задержка получения соединения, мкс
+ * @param timeouts          сколько раз соединение не удалось получить за {@code pool.connectionTimeoutMs}
+ */
+public record ConnectionPoolStats(int active,
+                                  int idle,
+                                  int pending,
+                                  int total,
+                                  long acquiredCount,
+                                  long avgAcquireMicros,
+                                  long maxAcquireMicros,
+                                  long timeouts) {
+}
@@ -0,0 +1,111 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Минимальная реализация CSV (RFC 4180): чтение записей из потока и экранирование значений.
+ *
+ * <p>Поддерживаются поля в кавычках, удвоенные кавычки внутри них и переводы строк внутри полей.
+ * Пустое поле без кавычек читается как {@code null}, а {@code ""} — как пустая строка; так же
+ * их различает {@code COPY ... (FORMAT csv)} в PostgreSQL.</p>
+ */
+public final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    /**
+     * Читает одну запись. Читатель должен быть буферизованным: символы читаются по одному.
+     *
+     * @param reader источник CSV
+     * @return значения полей записи, или {@code null}, если поток закончился
+     * @throws IOException при ошибке чтения или незакрытой кавычке
+     */
+    public static List<String> readRecord(Reader reader) throws IOException {
+        int ch = reader.read();
+        if (ch == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (ch == -1) {
+                    throw new IOException("Незакрытая кавычка в CSV");
+                }
+                if (ch == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) ch);
+                }
+            } else if (ch == '"' && field.isEmpty()) {
+                quoted = true;
+                inQuotes = true;
+            } else if (ch == ',') {
+                fields.add(value(field, quoted));
+                field.setLength(0);
+                quoted = false;
+            } else if (ch == '\n' || ch == -1) {
+                fields.add(value(field, quoted));
+                return fields;
+            } else if (ch != '\r') {
+                field.append((char) ch);
+            }
+            ch = reader.read();
+        }
+    }
+
+    /**
+     * Дописывает значение в CSV. {@code null} записывается пустым полем без кавычек.
+     *
+     * @param out   буфер, в который пишется значение
+     * @param value значение поля
+     */
+    public static void appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.isEmpty() || needsQuotes(value)) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String value(StringBuilder field, boolean quoted) {
+        return field.isEmpty() && !quoted ? null : field.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Публикует {@link Statistics} Hibernate в реестре Micrometer.
+ *
+ * <p>Счётчики читаются из статистики Hibernate лениво, в момент опроса реестра, поэтому
+ * на пути выполнения запросов никаких дополнительных действий нет.</p>
+ */
+public class HibernateStatisticsMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    public HibernateStatisticsMetrics(SessionFactory sessionFactory) {
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "hibernate.queries.executed", "Выполненные запросы", Statistics::getQueryExecutionCount);
+        counter(registry, "hibernate.entities.loaded", "Загруженные сущности", Statistics::getEntityLoadCount);
+        counter(registry, "hibernate.entities.fetched", "Сущности, догруженные отдельным запросом", Statistics::getEntityFetchCount);
+        counter(registry, "hibernate.entities.inserted", "Вставленные сущности", Statistics::getEntityInsertCount);
+        counter(registry, "hibernate.entities.updated", "Обновлённые сущности", Statistics::getEntityUpdateCount);
+        counter(registry, "hibernate.entities.deleted", "Удалённые сущности", Statistics::getEntityDeleteCount);
+        counter(registry, "hibernate.flushes", "Сбросы сессии", Statistics::getFlushCount);
+        counter(registry, "hibernate.transactions", "Все транзакции", Statistics::getTransactionCount);
+        counter(registry, "hibernate.transactions.successful", "Успешные транзакции", Statistics::getSuccessfulTransactionCount);
+        counter(registry, "hibernate.sessions.opened", "Открытые сессии", Statistics::getSessionOpenCount);
+        counter(registry, "hibernate.connections.obtained", "Полученные JDBC-соединения", Statistics::getConnectCount);
+        counter(registry, "hibernate.statements.prepared", "Подготовленные JDBC-выражения", Statistics::getPrepareStatementCount);
+        counter(registry, "hibernate.cache.second_level.hits", "Попадания в кэш второго уровня", Statistics::getSecondLevelCacheHitCount);
+        counter(registry, "hibernate.cache.second_level.misses", "Промахи кэша второго уровня", Statistics::getSecondLevelCacheMissCount);
+        counter(registry, "hibernate.cache.natural_id.hits", "Попадания в кэш естественного ключа", Statistics::getNaturalIdCacheHitCount);
+        counter(registry, "hibernate.cache.natural_id.misses", "Промахи кэша естественного ключа", Statistics::getNaturalIdCacheMissCount);
+        Gauge.builder("hibernate.query.max_time", statistics, s -> s.getQueryExecutionMaxTime())
+                .description("Максимальное время выполнения запроса, мс")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, ToDoubleFunction<Statistics> value) {
+        FunctionCounter.builder(name, statistics, value)
+                .description(description)
+                .register(registry);
+    }
+}
@@ -1,12 +1,25 @@
 package util;
 
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
+import javax.management.MBeanServer;
+import javax.sql.DataSource;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 
 /**
@@ -20,16 +33,73 @@ import java.util.Properties;
  *   <li>Использует статический инициализатор для настройки Hibernate при загрузке класса.</li>
  *   <li>Регистрирует аннотированный класс {@code model.User} вручную через {@code configuration.addAnnotatedClass()}.</li>
  *   <li>Создаёт {@link ServiceRegistry} на основе настроек Hibernate, указанных в {@code hibernate.properties} .</li>
+ *   <li>Включает пакетную запись JDBC ({@value #DEFAULT_BATCH_SIZE} выражений в пакете) и упорядочивание
+ *   INSERT/UPDATE, если эти настройки не заданы явно.</li>
+ *   <li>При {@code pool.enabled=true} подключает пул соединений {@link ConnectionPool} вместо встроенного пула Hibernate.</li>
+ *   <li>При заданном {@code replica.urls} направляет чтения внутри {@link #readScope()} на реплики
+ *   через {@link RoutingDataSource}; требует {@code pool.enabled=true}.</li>
+ *   <li>При {@code hibernate.cache.use_second_level_cache=true} в переданных настройках (по умолчанию, в том числе
+ *   в {@code hibernate.properties}, кэш выключен) подключает кэш второго уровня через JCache
+ *   (Ehcache, настройки регионов в {@code ehcache.xml}) и сбор статистики Hibernate.</li>
+ *   <li>При {@code metrics.enabled=true} публикует статистику Hibernate и пула соединений в реестре
+ *   {@link AppMetrics} (и через JMX при {@code metrics.jmx.enabled=true}).</li>
+ *   <li>При {@code schema.migrate=true} до построения {@code SessionFactory} применяет миграции схемы
+ *   ({@link SchemaMigrations}), а затем только проверяет схему по отображению ({@code hibernate.hbm2ddl.auto=validate},
+ *   если не задано иное).</li>
+ *   <li>При {@code startup.fast=true} запускается без обращения к базе: см. {@link #FAST_STARTUP}.</li>
  * </ul>
  *
+ * <p>Длительность этапов инициализации пишется в лог и доступна через {@link #getBootstrapTimings()}.</p>
+ *
  * <p>Логирование прозводится через SLF4J.</p>
  */
 @Slf4j
 public class HibernateUtil {
 
+    /**
+     * Размер JDBC-пакета по умолчанию. Совпадает с шагом, с которым DAO сбрасывает и очищает сессию при массовой записи.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Режим быстрого запуска для коротких запусков CLI и пакетных задач. Схема не проверяется и не обновляется
+     * ({@code hibernate.hbm2ddl.auto=none}, в том числе если {@code update} задано в {@code hibernate.properties}),
+     * метаданные JDBC при запуске не читаются (поэтому {@code hibernate.dialect} обязателен), а пул соединений
+     * не открывает соединений до первого запроса ({@code pool.lazyStart=true}, {@code pool.minIdle=0}, если
+     * не заданы явно). В итоге {@code SessionFactory} строится без единого обращения к базе; исключение —
+     * миграции схемы, если они явно включены.
+     */
+    public static final String FAST_STARTUP = "startup.fast";
+
+    /**
+     * Параметры подключения, которые не должны доходить до Hibernate, когда соединения выдаёт пул.
+     */
+    private static final List<String> CONNECTION_SETTINGS = List.of(
+            "hibernate.connection.url",
+            "hibernate.connection.username",
+            "hibernate.connection.password",
+            "hibernate.connection.driver_class");
+
     @Getter
     private static SessionFactory sessionFactory;
 
+    @Getter
+    private static ConnectionPool connectionPool;
+
+    private static RoutingDataSource routingDataSource;
+
+    @Getter
+    private static BootstrapTimings bootstrapTimings;
+
+    /**
+     * Область, внутри которой соединения берутся из пулов реплик. Закрытие восстанавливает
+     * предыдущее состояние, поэтому области можно вкладывать.
+     */
+    public interface ReadScope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
     /**
      * Явная инициализация Hibernate с заданными настройками.
      * Может быть вызвана из main-класса или из теста.
@@ -42,33 +112,277 @@ public class HibernateUtil {
             return;
         }
 
+        BootstrapTimings.Recorder timings = new BootstrapTimings.Recorder();
         try {
+            Properties properties = new Properties();
+            properties.putAll(settings);
+            boolean migrate = SchemaMigrations.isEnabled(properties);
+            if (migrate) {
+                properties.putIfAbsent(AvailableSettings.HBM2DDL_AUTO, "validate");
+            }
+            if (Boolean.parseBoolean(properties.getProperty(FAST_STARTUP, "false"))) {
+                configureFastStartup(properties);
+            }
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(DEFAULT_BATCH_SIZE));
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+            if (Boolean.parseBoolean(properties.getProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false"))) {
+                configureSecondLevelCache(properties);
+            }
+            boolean metricsEnabled = Boolean.parseBoolean(properties.getProperty(AppMetrics.ENABLED, "false"));
+            if (metricsEnabled) {
+                properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, "true");
+            }
+
             Configuration configuration = new Configuration();
-            configuration.setProperties(settings);
+            configuration.setProperties(properties);
+            timings.mark("настройки");
+
+            if (ConnectionPool.isEnabled(properties)) {
+                connectionPool = ConnectionPool.create(properties, "users-primary");
+                if (RoutingDataSource.isEnabled(properties)) {
+                    routingDataSource = RoutingDataSource.create(properties, connectionPool);
+                    useDataSource(properties, routingDataSource);
+                } else {
+                    useDataSource(properties, connectionPool.getDataSource());
+                }
+                timings.mark("пул соединений");
+            } else if (RoutingDataSource.isEnabled(properties)) {
+                throw new IllegalStateException("Для маршрутизации на реплики нужен пул соединений: pool.enabled=true");
+            }
+
+            if (migrate) {
+                SchemaMigrations.migrate(properties, connectionPool == null ? null : connectionPool.getDataSource());
+                timings.mark("миграции");
+            }
 
             // Регистрируем entity-классы
             configuration.addAnnotatedClass(model.User.class);
 
-            ServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
-                    .applySettings(configuration.getProperties())
-                    .build();
+            StandardServiceRegistryBuilder registryBuilder = new StandardServiceRegistryBuilder()
+                    .applySettings(configuration.getProperties());
+            if (connectionPool != null) {
+                // Реестр читает и hibernate.properties из classpath, так что параметры подключения
+                // оттуда нужно убрать и из его настроек
+                CONNECTION_SETTINGS.forEach(registryBuilder.getSettings()::remove);
+            }
+            ServiceRegistry serviceRegistry = registryBuilder.build();
+            timings.mark("реестр сервисов");
 
             sessionFactory = configuration.buildSessionFactory(serviceRegistry);
             log.info("Hibernate SessionFactory успешно инициализирована вручную.");
+            timings.mark("SessionFactory");
+
+            if (metricsEnabled) {
+                bindMetrics(properties);
+                timings.mark("метрики");
+            }
+
+            bootstrapTimings = timings.finish();
+            log.info("Этапы инициализации Hibernate: {}", bootstrapTimings);
 
         } catch (Throwable ex) {
             log.error("Инициализация SessionFactory провалена.", ex);
+            closePool();
             throw new ExceptionInInitializerError(ex);
         }
     }
+
+    /**
+     * Возвращает размер JDBC-пакета, с которым построена {@link SessionFactory}.
+     *
+     * @return значение {@code hibernate.jdbc.batch_size}
+     */
+    public static int getBatchSize() {
+        if (sessionFactory == null) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        Object value = sessionFactory.getProperties().get(AvailableSettings.STATEMENT_BATCH_SIZE);
+        return value == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Возвращает метрики пула соединений.
+     *
+     * @return снимок метрик или {@code null}, если пул не включён
+     */
+    public static ConnectionPoolStats getPoolStats() {
+        return connectionPool == null ? null : connectionPool.stats();
+    }
+
+    /**
+     * Возвращает метрики пулов соединений реплик.
+     *
+     * @return снимки метрик по имени пула, или пустая карта, если реплики не заданы
+     */
+    public static Map<String, ConnectionPoolStats> getReplicaPoolStats() {
+        return routingDataSource == null ? Map.of() : routingDataSource.replicaStats();
+    }
+
+    /**
+     * Проверяет, направляются ли чтения внутри {@link #readScope()} на реплики.
+     *
+     * @return {@code true}, если заданы {@code replica.urls}
+     */
+    public static boolean hasReplicas() {
+        return routingDataSource != null;
+    }
+
+    /**
+     * Открывает область чтения: соединения, которые Hibernate возьмёт внутри неё, выдаются репликами
+     * (если они заданы и не действует окно read-your-writes). Используется в try-with-resources
+     * вокруг сессии, которая только читает.
+     *
+     * @return область чтения, которую нужно закрыть
+     */
+    public static ReadScope readScope() {
+        boolean previous = RoutingDataSource.enterReadScope();
+        return () -> RoutingDataSource.exitReadScope(previous);
+    }
+
+    /**
+     * Сообщает о зафиксированной записи на основном сервере. Следующие {@code replica.readYourWritesMs}
+     * миллисекунд чтения текущего потока выполняются на основном сервере; другие потоки продолжают читать с реплик.
+     */
+    public static void recordWrite() {
+        RoutingDataSource routing = routingDataSource;
+        if (routing != null) {
+            routing.recordWrite();
+        }
+    }
+
+    /**
+     * Возвращает статистику по регионам кэша второго уровня.
+     *
+     * @return статистика регионов, или пустой список, если кэш или статистика выключены
+     */
+    public static List<CacheRegionStats> getCacheStatistics() {
+        if (sessionFactory == null || !sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            return List.of();
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .map(region -> {
+                    CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+                    if (regionStats == null) {
+                        return null;
+                    }
+                    return new CacheRegionStats(region,
+                            regionStats.getHitCount(),
+                            regionStats.getMissCount(),
+                            regionStats.getPutCount(),
+                            jcacheEvictions(region),
+                            regionStats.getElementCountInMemory());
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     /**
      * Закрывает SessionFactory и освобождает ресурсы.
      */
     public static void shutdown() {
+        unbindMetrics();
         if (sessionFactory != null) {
             sessionFactory.close();
             sessionFactory = null;
             log.info("SessionFactory закрыта.");
         }
+        closePool();
+    }
+
+    /**
+     * Настройки режима {@link #FAST_STARTUP}.
+     */
+    private static void configureFastStartup(Properties properties) {
+        if (properties.getProperty(AvailableSettings.DIALECT) == null) {
+            throw new IllegalStateException("Для быстрого запуска нужно явно задать " + AvailableSettings.DIALECT);
+        }
+        properties.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+        properties.setProperty(AvailableSettings.ALLOW_METADATA_ON_BOOT, "false");
+        properties.putIfAbsent(ConnectionPool.LAZY_START, "true");
+        properties.putIfAbsent(ConnectionPool.MIN_IDLE, "0");
+        log.info("Быстрый запуск: схема не проверяется, соединения открываются по первому запросу.");
+    }
+
+    /**
+     * Передаёт Hibernate готовый {@link DataSource} пула. Параметры подключения
+     * убираются из настроек: иначе Hibernate запрашивал бы соединения по логину и паролю в обход пула.
+     */
+    private static void useDataSource(Properties properties, DataSource dataSource) {
+        CONNECTION_SETTINGS.forEach(properties::remove);
+        properties.put(AvailableSettings.DATASOURCE, dataSource);
+    }
+
+    /**
+     * Регистрирует метрики Hibernate и пула соединений.
+     */
+    private static void bindMetrics(Properties properties) {
+        if (Boolean.parseBoolean(properties.getProperty(AppMetrics.JMX_ENABLED, "false"))) {
+            AppMetrics.enableJmx();
+        }
+        new HibernateStatisticsMetrics(sessionFactory).bindTo(AppMetrics.registry());
+        if (connectionPool != null) {
+            connectionPool.bindTo(AppMetrics.registry());
+        }
+        if (routingDataSource != null) {
+            routingDataSource.bindTo(AppMetrics.registry());
+        }
+    }
+
+    /**
+     * Удаляет метрики, привязанные к закрываемым SessionFactory и пулу, чтобы после повторной
+     * инициализации они не продолжали читать закрытые объекты.
+     */
+    private static void unbindMetrics() {
+        MeterRegistry registry = AppMetrics.registry();
+        List<Meter> meters = registry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith("hibernate.")
+                        || meter.getId().getName().startsWith(ConnectionPool.METRIC_PREFIX))
+                .toList();
+        meters.forEach(registry::remove);
+    }
+
+    /**
+     * Подключает JCache-провайдер кэша второго уровня. Регион без настройки в {@code ehcache.xml}
+     * считается ошибкой, чтобы в кэш не попадали регионы без ограничения размера.
+     */
+    private static void configureSecondLevelCache(Properties properties) {
+        properties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+        properties.putIfAbsent("hibernate.javax.cache.uri", "ehcache.xml");
+        properties.putIfAbsent("hibernate.javax.cache.missing_cache_strategy", "fail");
+        properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, "true");
+    }
+
+    /**
+     * Читает число вытеснений из JMX-статистики JCache: Hibernate этот показатель не собирает.
+     */
+    private static long jcacheEvictions(String region) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName pattern = new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*");
+            long evictions = 0;
+            for (ObjectName name : server.queryNames(pattern, null)) {
+                evictions += ((Number) server.getAttribute(name, "CacheEvictions")).longValue();
+            }
+            return evictions;
+        } catch (Exception e) {
+            log.debug("Не удалось прочитать статистику вытеснений региона {}", region, e);
+            return 0;
+        }
+    }
+
+    private static void closePool() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+            routingDataSource = null;
+        }
+        if (connectionPool != null) {
+            connectionPool.close();
+            connectionPool = null;
+        }
     }
 }
@@ -0,0 +1,60 @@
+package util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель частоты однотипных сообщений в логе.
+ *
+ * <p>Пропускает не больше {@code limit} сообщений за окно {@code window}; остальные отбрасываются
+ * и подсчитываются, чтобы при следующем пропущенном сообщении можно было сообщить, сколько было
+ * потеряно. Работает без блокировок: на границе окна счётчик может сброситься чуть позже,
+ * что для логирования несущественно.</p>
+ */
+public final class LogSampler {
+
+    private final long limit;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicLong inWindow = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param limit  сколько сообщений пропускать за одно окно
+     * @param window длительность окна
+     */
+    public LogSampler(long limit, Duration window) {
+        if (limit <= 0 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Лимит и окно должны быть положительными");
+        }
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return {@code true}, если сообщение нужно записать
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            inWindow.set(0);
+        }
+        if (inWindow.incrementAndGet() <= limit) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    /**
+     * Возвращает число отброшенных сообщений и обнуляет его.
+     *
+     * @return сколько сообщений было отброшено с прошлого вызова
+     */
+    public long drainSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
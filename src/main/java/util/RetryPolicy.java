@@ -0,0 +1,41 @@
+package util;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Политика повторов при конфликте записи: ограниченное число попыток и экспоненциально растущая
+ * задержка со случайным разбросом. Задержка выбирается равномерно от нуля до верхней границы,
+ * поэтому писатели, столкнувшиеся на одной строке, повторяют попытки в разные моменты.
+ *
+ * @param maxAttempts сколько всего попыток, включая первую
+ * @param baseDelay   верхняя граница задержки после первой неудачной попытки; удваивается с каждой следующей
+ * @param maxDelay    предельная верхняя граница задержки
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(5, Duration.ofMillis(5), Duration.ofMillis(200));
+
+    public RetryPolicy {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Число попыток должно быть положительным");
+        }
+        if (baseDelay == null || maxDelay == null || baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("Задержки должны быть неотрицательными, maxDelay не меньше baseDelay");
+        }
+    }
+
+    /**
+     * Возвращает задержку перед следующей попыткой.
+     *
+     * @param failedAttempt номер неудавшейся попытки, начиная с 1
+     * @return случайная задержка от нуля до {@code min(maxDelay, baseDelay * 2^(failedAttempt - 1))}
+     */
+    public Duration backoff(int failedAttempt) {
+        long base = baseDelay.toNanos();
+        long cap = maxDelay.toNanos();
+        int shift = Math.min(Math.max(failedAttempt - 1, 0), 62);
+        long bound = base > (cap >> shift) ? cap : base << shift;
+        return bound == 0 ? Duration.ZERO : Duration.ofNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+}
@@ -0,0 +1,270 @@
+package util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * {@link DataSource}, который отдаёт соединения для чтения из пулов реплик, а все остальные —
+ * из пула основного сервера.
+ *
+ * <p>Соединение считается соединением для чтения, если оно запрошено внутри
+ * {@link HibernateUtil#readScope()}. Hibernate берёт соединение лениво, при первом запросе сессии,
+ * поэтому достаточно, чтобы сессия чтения целиком выполнялась внутри такой области.
+ * Единая {@code SessionFactory} при этом сохраняет общий кэш второго уровня для основного сервера и реплик.</p>
+ *
+ * <p>Настраивается свойствами с префиксом {@code replica.}:</p>
+ * <ul>
+ *   <li>{@code replica.urls} — JDBC URL реплик через запятую; если не задано, маршрутизация выключена.</li>
+ *   <li>{@code replica.username}, {@code replica.password} — учётные данные реплик
+ *   (по умолчанию совпадают с {@code hibernate.connection.*}).</li>
+ *   <li>{@code replica.selection} — {@code round-robin} (по умолчанию) или {@code least-loaded}:
+ *   реплика с наименьшим числом выданных соединений и ожидающих потоков.</li>
+ *   <li>{@code replica.readYourWritesMs} — сколько миллисекунд после записи (см. {@link HibernateUtil#recordWrite()})
+ *   чтения того же потока идут на основной сервер, чтобы он не прочитал с реплики устаревшие данные
+ *   (0 — выключено). Окно отсчитывается для каждого потока отдельно: записи других потоков
+ *   не переводят его чтения на основной сервер.</li>
+ * </ul>
+ *
+ * <p>Пулы реплик создаются с теми же параметрами {@code pool.*}, что и пул основного сервера.
+ * Если реплика не выдала соединение, чтение выполняется на основном сервере.</p>
+ */
+@Slf4j
+public class RoutingDataSource implements DataSource {
+
+    public static final String URLS = "replica.urls";
+    public static final String USERNAME = "replica.username";
+    public static final String PASSWORD = "replica.password";
+    public static final String SELECTION = "replica.selection";
+    public static final String READ_YOUR_WRITES_MS = "replica.readYourWritesMs";
+
+    private static final ThreadLocal<Boolean> READ_SCOPE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private static final LogSampler FAILOVER_LOG_SAMPLER = new LogSampler(1, Duration.ofSeconds(10));
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final boolean leastLoaded;
+    private final long readYourWritesNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+
+    private RoutingDataSource(ConnectionPool primary, List<ConnectionPool> replicas, boolean leastLoaded,
+                              long readYourWritesMs) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.leastLoaded = leastLoaded;
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMs);
+    }
+
+    /**
+     * Проверяет, заданы ли реплики в переданных настройках.
+     *
+     * @param settings настройки приложения
+     * @return {@code true}, если задано непустое {@code replica.urls}
+     */
+    public static boolean isEnabled(Properties settings) {
+        String urls = settings.getProperty(URLS);
+        return urls != null && !urls.isBlank();
+    }
+
+    /**
+     * Создаёт пулы реплик и источник соединений поверх них и пула основного сервера.
+     *
+     * @param settings настройки приложения
+     * @param primary  пул основного сервера
+     * @return источник соединений с маршрутизацией чтения
+     */
+    static RoutingDataSource create(Properties settings, ConnectionPool primary) {
+        String selection = settings.getProperty(SELECTION, "round-robin").trim().toLowerCase(Locale.ROOT);
+        if (!selection.equals("round-robin") && !selection.equals("least-loaded")) {
+            throw new IllegalArgumentException("Неизвестная стратегия выбора реплики: " + selection);
+        }
+        long readYourWritesMs = Long.parseLong(settings.getProperty(READ_YOUR_WRITES_MS, "0").trim());
+
+        List<ConnectionPool> replicas = new ArrayList<>();
+        try {
+            for (String url : settings.getProperty(URLS).split(",")) {
+                Properties replicaSettings = new Properties();
+                replicaSettings.putAll(settings);
+                replicaSettings.setProperty("hibernate.connection.url", url.trim());
+                copyIfPresent(settings, USERNAME, replicaSettings, "hibernate.connection.username");
+                copyIfPresent(settings, PASSWORD, replicaSettings, "hibernate.connection.password");
+                replicas.add(ConnectionPool.create(replicaSettings, "users-replica-" + (replicas.size() + 1)));
+            }
+        } catch (RuntimeException e) {
+            replicas.forEach(ConnectionPool::close);
+            throw e;
+        }
+
+        log.info("Чтение направляется на реплики: {}, выбор {}, read-your-writes {} мс",
+                replicas.size(), selection, readYourWritesMs);
+        return new RoutingDataSource(primary, List.copyOf(replicas), selection.equals("least-loaded"),
+                readYourWritesMs);
+    }
+
+    /**
+     * Отмечает текущий поток как выполняющий чтение.
+     *
+     * @return предыдущее состояние, которое нужно передать в {@link #exitReadScope(boolean)}
+     */
+    static boolean enterReadScope() {
+        boolean previous = READ_SCOPE.get();
+        READ_SCOPE.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void exitReadScope(boolean previous) {
+        if (previous) {
+            READ_SCOPE.set(Boolean.TRUE);
+        } else {
+            READ_SCOPE.remove();
+        }
+    }
+
+    /**
+     * Запоминает момент записи текущего потока, от которого отсчитывается его окно read-your-writes.
+     */
+    void recordWrite() {
+        if (readYourWritesNanos > 0) {
+            lastWriteNanos.set(System.nanoTime());
+        }
+    }
+
+    /**
+     * @return снимки метрик пулов реплик по имени пула
+     */
+    Map<String, ConnectionPoolStats> replicaStats() {
+        Map<String, ConnectionPoolStats> stats = new LinkedHashMap<>();
+        replicas.forEach(replica -> stats.put(replica.getName(), replica.stats()));
+        return stats;
+    }
+
+    /**
+     * Публикует метрики пулов реплик.
+     */
+    void bindTo(MeterRegistry registry) {
+        replicas.forEach(replica -> replica.bindTo(registry));
+    }
+
+    /**
+     * Закрывает пулы реплик. Пул основного сервера закрывает его владелец.
+     */
+    void close() {
+        replicas.forEach(ConnectionPool::close);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (READ_SCOPE.get() && !inReadYourWritesWindow()) {
+            ConnectionPool replica = selectReplica();
+            try {
+                return replica.getDataSource().getConnection();
+            } catch (SQLException e) {
+                if (FAILOVER_LOG_SAMPLER.tryAcquire()) {
+                    log.warn("Реплика {} не выдала соединение, чтение выполняется на основном сервере",
+                            replica.getName(), e);
+                }
+            }
+        }
+        return primary.getDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Соединения выдаются только с учётными данными пулов");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getDataSource().getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.getDataSource().setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.getDataSource().setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getDataSource().getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getDataSource().getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        return primary.getDataSource().unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || primary.getDataSource().isWrapperFor(type);
+    }
+
+    private boolean inReadYourWritesWindow() {
+        Long lastWrite = lastWriteNanos.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < readYourWritesNanos) {
+            return true;
+        }
+        lastWriteNanos.remove();
+        return false;
+    }
+
+    private ConnectionPool selectReplica() {
+        if (replicas.size() == 1) {
+            return replicas.getFirst();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (!leastLoaded) {
+            return replicas.get(start);
+        }
+        // Обход начинается со сдвигом, чтобы при равной нагрузке реплики выбирались по очереди
+        ConnectionPool best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            ConnectionPool replica = replicas.get((start + i) % replicas.size());
+            int load = replica.load();
+            if (load < bestLoad) {
+                best = replica;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private static void copyIfPresent(Properties from, String fromKey, Properties to, String toKey) {
+        String value = from.getProperty(fromKey);
+        if (value != null) {
+            to.setProperty(toKey, value);
+        }
+    }
+}
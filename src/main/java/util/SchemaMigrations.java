@@ -0,0 +1,73 @@
+package util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Версионированные миграции схемы на Flyway. Скрипты лежат в {@value #LOCATION} и называются
+ * {@code V<номер>__<описание>.sql}; применённые версии и их контрольные суммы хранятся в таблице
+ * {@code flyway_schema_history}, поэтому изменённый после применения скрипт считается ошибкой.
+ *
+ * <p>Включаются свойством {@code schema.migrate=true}; {@link HibernateUtil} выполняет их до построения
+ * {@code SessionFactory}. База, схему которой раньше создавал {@code hibernate.hbm2ddl.auto=update},
+ * принимается за версию 0 ({@code baselineOnMigrate}), и к ней применяются все миграции: V1 написана так,
+ * что приводит старую таблицу к текущему виду (столбец {@code version}, последовательность {@code users_seq},
+ * выровненная по наибольшему {@code id}).</p>
+ */
+@Slf4j
+public final class SchemaMigrations {
+
+    public static final String ENABLED = "schema.migrate";
+
+    static final String LOCATION = "classpath:db/migration";
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Проверяет, включены ли миграции в переданных настройках.
+     *
+     * @param settings настройки приложения
+     * @return {@code true}, если задано {@code schema.migrate=true}
+     */
+    public static boolean isEnabled(Properties settings) {
+        return Boolean.parseBoolean(settings.getProperty(ENABLED, "false"));
+    }
+
+    /**
+     * Применяет недостающие миграции.
+     *
+     * @param settings   настройки приложения; из них берутся {@code hibernate.connection.*}, если не передан пул
+     * @param dataSource источник соединений пула или {@code null}
+     * @return число применённых миграций
+     */
+    static int migrate(Properties settings, DataSource dataSource) {
+        var configuration = Flyway.configure()
+                .locations(LOCATION)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                // CREATE INDEX CONCURRENTLY ждёт завершения всех транзакций, в том числе транзакции,
+                // в которой Flyway держал бы свою блокировку, поэтому блокировка берётся вне транзакции
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+        if (dataSource != null) {
+            configuration.dataSource(dataSource);
+        } else {
+            configuration.dataSource(settings.getProperty("hibernate.connection.url"),
+                    settings.getProperty("hibernate.connection.username"),
+                    settings.getProperty("hibernate.connection.password"));
+        }
+
+        MigrateResult result = configuration.load().migrate();
+        if (result.migrationsExecuted > 0) {
+            log.info("Применено миграций схемы: {}, версия схемы {}", result.migrationsExecuted, result.targetSchemaVersion);
+        } else {
+            log.info("Схема в актуальном состоянии, версия {}", result.initialSchemaVersion);
+        }
+        return result.migrationsExecuted;
+    }
+}
@@ -0,0 +1,30 @@
+-- Таблица пользователей в том виде, в каком её отображает сущность model.User.
+-- Миграция выполняется и на базе, схему которой раньше создавал hibernate.hbm2ddl.auto=update
+-- (Flyway принимает такую базу за версию 0), поэтому каждая команда допускает повторное выполнение
+-- и приводит старую таблицу к текущему виду.
+CREATE TABLE IF NOT EXISTS users (
+    id         bigint       NOT NULL,
+    name       varchar(255) NOT NULL,
+    email      varchar(255) NOT NULL,
+    age        integer      NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    version    bigint       NOT NULL DEFAULT 0,
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT users_email_key UNIQUE (email)
+);
+
+-- Старая таблица: идентификатор генерировала база (IDENTITY), версии строк не было
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- Шаг последовательности совпадает с User.ID_ALLOCATION_SIZE: Hibernate проверяет его при запуске.
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE users_seq INCREMENT BY 50;
+
+-- Hibernate выдаёт идентификаторы блоком, который заканчивается значением nextval, поэтому
+-- последовательность сдвигается на наибольший существующий id: новые строки получат id больше него.
+-- Назад последовательность не сдвигается.
+SELECT setval('users_seq', greatest(max(id), (SELECT last_value FROM users_seq)))
+FROM users
+HAVING max(id) IS NOT NULL;
@@ -0,0 +1,12 @@
+-- Индексы под запросы DAO. CREATE INDEX CONCURRENTLY не блокирует запись в таблицу,
+-- но не может выполняться в транзакции, поэтому миграция состоит только из таких команд
+-- и Flyway выполняет её вне транзакции.
+
+-- Поиск по email без учёта регистра (UserDao.findByEmailIgnoreCase)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_lower_idx ON users (lower(email));
+
+-- Фильтрация и сортировка по дате регистрации
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_created_at_idx ON users (created_at);
+
+-- Фильтрация по возрасту
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_age_idx ON users (age);
@@ -0,0 +1,3 @@
+-- Поиск по началу имени (UserDao.search, u.name LIKE 'префикс%'). Обычный индекс по name
+-- использует правила сортировки базы и для LIKE не подходит, если они отличаются от "C".
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_name_prefix_idx ON users (name text_pattern_ops);
@@ -0,0 +1,114 @@
+package analytics;
+
+import dao.UserDao;
+import dao.UserDaoImpl;
+import dao.UserSearch;
+import model.User;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import util.HibernateUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@Testcontainers
+class UserAnalyticsTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-analytics")
+            .withUsername("postgres-test")
+            .withPassword("postgres-test");
+
+    private UserDao userDao;
+    private UserAnalytics analytics;
+
+    @BeforeAll
+    static void setUpAll() {
+        Properties props = new Properties();
+        props.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        props.setProperty("hibernate.connection.username", postgres.getUsername());
+        props.setProperty("hibernate.connection.password", postgres.getPassword());
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+
+        HibernateUtil.init(props);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        HibernateUtil.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        execute("DELETE FROM users");
+        userDao = new UserDaoImpl();
+        analytics = new UserAnalytics(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void rebuild_shouldMatchDatabaseAggregatesIT() {
+        //Given
+        LocalDateTime now = LocalDateTime.now();
+        userDao.saveAll(List.of(
+                User.builder().name("Анна").email("anna@example.com").age(25).createdAt(now.minusDays(2)).build(),
+                User.builder().name("Андрей").email("andrey@example.com").age(31).createdAt(now.minusDays(1)).build(),
+                User.builder().name("Борис").email("boris@example.com").age(40).createdAt(now).build()));
+        UserSearch filter = UserSearch.builder().namePrefix("Ан").build();
+
+        //When
+        UserColumns snapshot = analytics.rebuild();
+
+        //Then
+        assertEquals(3, snapshot.size());
+        assertEquals(userDao.count(filter), snapshot.count(filter));
+        assertEquals(userDao.ageStats(null), snapshot.ageStats(null));
+        assertEquals(userDao.ageHistogram(null, 10), snapshot.ageHistogram(null, 10));
+    }
+
+    @Test
+    void refresh_shouldPickUpLateRowsWithLowerIdsIT() {
+        //Given
+        LocalDateTime now = LocalDateTime.now();
+        execute("INSERT INTO users (id, name, email, age, created_at) VALUES "
+                + "(10, 'Анна', 'anna@example.com', 25, '" + now.minusHours(1) + "'), "
+                + "(20, 'Борис', 'boris@example.com', 40, '" + now + "')");
+        analytics.rebuild();
+        // Строка с меньшим ID из транзакции, зафиксированной после построения снимка, и обычная новая строка
+        execute("INSERT INTO users (id, name, email, age, created_at) VALUES "
+                + "(15, 'Вера', 'vera@example.com', 58, '" + now.minusMinutes(1) + "'), "
+                + "(30, 'Глеб', 'gleb@example.com', 45, '" + now.plusSeconds(1) + "')");
+
+        //When
+        UserColumns snapshot = analytics.refresh();
+
+        //Then
+        assertArrayEquals(new long[]{10, 15, 20, 30}, snapshot.ids(null, 10));
+        assertEquals("vera@example.com", snapshot.emailOf(15));
+        assertEquals(userDao.ageStats(null), snapshot.ageStats(null));
+        assertSame(snapshot, analytics.snapshot());
+    }
+
+    private static void execute(String sql) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createNativeMutationQuery(sql).executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package analytics;
+
+import dao.AgeBucket;
+import dao.AgeStats;
+import dao.SignupBucket;
+import dao.TimeBucket;
+import dao.UserSearch;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserColumnsTest {
+
+    private static final LocalDateTime JAN_1 = LocalDateTime.of(2025, 1, 1, 10, 30);
+
+    private final UserColumns columns = UserColumns.builder()
+            .add(1, "Анна", "anna@example.com", 25, JAN_1)
+            .add(2, "Андрей", "andrey@example.com", 31, JAN_1.plusHours(1))
+            .add(5, "Борис", "boris@example.com", 40, JAN_1.plusDays(6))
+            .add(7, "Анна", "anna2@example.com", 33, JAN_1.plusMonths(1))
+            .add(9, "Вера", "vera@example.com", 58, JAN_1.plusMonths(1).plusDays(1))
+            .build();
+
+    @Test
+    void count_shouldApplyAllConditions() {
+        assertEquals(5, columns.count(null));
+        assertEquals(3, columns.count(UserSearch.builder().minAge(30).maxAge(40).build()));
+        assertEquals(3, columns.count(UserSearch.builder().namePrefix("Ан").build()));
+        assertEquals(2, columns.count(UserSearch.builder()
+                .createdFrom(JAN_1.plusHours(1))
+                .createdBefore(JAN_1.plusMonths(1))
+                .build()));
+        assertArrayEquals(new long[]{2, 7}, columns.ids(UserSearch.builder().namePrefix("Ан").minAge(30).build(), 10));
+    }
+
+    @Test
+    void ageStats_shouldAggregateMatchingRows() {
+        assertEquals(new AgeStats(2, 25, 33, 29.0), columns.ageStats(UserSearch.builder().namePrefix("Анна").build()));
+        assertEquals(new AgeStats(0, null, null, null), columns.ageStats(UserSearch.builder().minAge(100).build()));
+        assertEquals(List.of(new AgeBucket(20, 1), new AgeBucket(30, 2), new AgeBucket(40, 1), new AgeBucket(50, 1)),
+                columns.ageHistogram(null, 10));
+    }
+
+    @Test
+    void signups_shouldTruncateLikeDateTrunc() {
+        assertEquals(List.of(
+                        new SignupBucket(LocalDateTime.of(2025, 1, 1, 0, 0), 2),
+                        new SignupBucket(LocalDateTime.of(2025, 1, 7, 0, 0), 1),
+                        new SignupBucket(LocalDateTime.of(2025, 2, 1, 0, 0), 1),
+                        new SignupBucket(LocalDateTime.of(2025, 2, 2, 0, 0), 1)),
+                columns.signups(null, TimeBucket.DAY));
+        // 1 января 2025 — среда, неделя начинается с понедельника 30 декабря
+        assertEquals(new SignupBucket(LocalDateTime.of(2024, 12, 30, 0, 0), 2),
+                columns.signups(null, TimeBucket.WEEK).getFirst());
+        assertEquals(List.of(
+                        new SignupBucket(LocalDateTime.of(2025, 1, 1, 0, 0), 3),
+                        new SignupBucket(LocalDateTime.of(2025, 2, 1, 0, 0), 2)),
+                columns.signups(null, TimeBucket.MONTH));
+    }
+
+    @Test
+    void topNames_shouldGroupByDictionaryCode() {
+        assertEquals(List.of(new NameCount("Анна", 2), new NameCount("Андрей", 1)),
+                columns.topNames(UserSearch.builder().namePrefix("Ан").build(), 10));
+        assertEquals(1, columns.topNames(null, 1).size());
+        assertThrows(IllegalArgumentException.class, () -> columns.topNames(null, 0));
+    }
+
+    @Test
+    void merge_shouldKeepIdOrderAndSkipKnownRows() {
+        UserColumns batch = UserColumns.builder()
+                .add(3, "Анна", "anna3@example.com", 20, JAN_1.plusMonths(2))
+                .add(7, "Анна", "anna2@example.com", 33, JAN_1.plusMonths(1))
+                .add(11, "Глеб", "gleb@example.com", 45, JAN_1.plusMonths(2))
+                .build();
+
+        UserColumns merged = columns.merge(batch);
+
+        assertEquals(7, merged.size());
+        assertArrayEquals(new long[]{1, 2, 3, 5, 7, 9, 11}, merged.ids(null, 100));
+        assertEquals("anna3@example.com", merged.emailOf(3));
+        assertEquals(List.of(new NameCount("Анна", 3)), merged.topNames(null, 1));
+        assertEquals(11L, merged.maxId());
+        assertEquals(5, columns.size());
+        assertThrows(IllegalArgumentException.class, () -> UserColumns.builder()
+                .add(2, "Анна", "a@example.com", 20, JAN_1)
+                .add(1, "Анна", "b@example.com", 20, JAN_1));
+    }
+
+    @Test
+    void largeSnapshot_shouldGiveSameResultsWhenScannedInParallelChunks() {
+        // Несколько кусков по MIN_CHUNK строк, чтобы снимок обходился параллельно
+        int size = UserColumns.MIN_CHUNK * 3 + 17;
+        String[] names = {"Анна", "Андрей", "Борис", "Вера", "Глеб"};
+        UserColumns.Builder builder = UserColumns.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(i + 1, names[i % names.length], "user" + i + "@example.com", 18 + i % 60, JAN_1.plusMinutes(i));
+        }
+        UserColumns large = builder.build();
+        UserSearch filter = UserSearch.builder().namePrefix("Ан").minAge(30).maxAge(50)
+                .createdFrom(JAN_1.plusDays(10)).build();
+        List<Integer> matching = IntStream.range(0, size)
+                .filter(i -> names[i % names.length].startsWith("Ан"))
+                .filter(i -> 18 + i % 60 >= 30 && 18 + i % 60 <= 50)
+                .filter(i -> !JAN_1.plusMinutes(i).isBefore(JAN_1.plusDays(10)))
+                .boxed()
+                .toList();
+
+        assertTrue(size > 2 * UserColumns.MIN_CHUNK);
+        assertEquals(size, large.count(null));
+        assertEquals(matching.size(), large.count(filter));
+        AgeStats stats = large.ageStats(filter);
+        assertEquals(matching.size(), stats.count());
+        assertEquals(matching.stream().mapToInt(i -> 18 + i % 60).min().orElseThrow(), stats.minAge());
+        assertEquals(matching.stream().mapToInt(i -> 18 + i % 60).max().orElseThrow(), stats.maxAge());
+        assertEquals(matching.stream().mapToInt(i -> 18 + i % 60).average().orElseThrow(), stats.avgAge(), 1e-9);
+        Map<Integer, Long> histogram = matching.stream()
+                .collect(Collectors.groupingBy(i -> (18 + i % 60) / 10 * 10, TreeMap::new, Collectors.counting()));
+        assertEquals(histogram.entrySet().stream().map(e -> new AgeBucket(e.getKey(), e.getValue())).toList(),
+                large.ageHistogram(filter, 10));
+        assertEquals(matching.size(), large.signups(filter, TimeBucket.DAY).stream().mapToLong(SignupBucket::count).sum());
+        Map<String, Long> byName = matching.stream()
+                .collect(Collectors.groupingBy(i -> names[i % names.length], Collectors.counting()));
+        assertEquals(byName.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                        .map(e -> new NameCount(e.getKey(), e.getValue()))
+                        .toList(),
+                large.topNames(filter, 10));
+        assertArrayEquals(matching.stream().limit(100).mapToLong(i -> i + 1).toArray(), large.ids(filter, 100));
+    }
+}
@@ -0,0 +1,166 @@
+package cache;
+
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapUserCacheTest {
+
+    private OffHeapUserCache cache;
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void putLoaded_shouldRoundTripAllFields() {
+        cache = new OffHeapUserCache(8);
+        User user = User.builder().id(42L).name("Анна").email("anna@example.com").age(30)
+                .createdAt(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_000)).version(3L).build();
+
+        assertTrue(cache.putLoaded(user, cache.beginLoad(42)));
+        User cached = cache.get(42);
+
+        assertEquals(user, cached);
+        assertNotSame(cached, cache.get(42));
+        assertNull(cache.get(43));
+        assertEquals(2, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void invalidate_shouldRemoveUserAndRejectStaleLoad() {
+        cache = new OffHeapUserCache(8);
+        cache.putLoaded(user(1, "v1"), cache.beginLoad(1));
+
+        long loadStamp = cache.beginLoad(1);
+        cache.invalidate(1);
+
+        assertNull(cache.get(1));
+        assertFalse(cache.putLoaded(user(1, "v1"), loadStamp));
+        assertTrue(cache.putLoaded(user(1, "v2"), cache.beginLoad(1)));
+        assertEquals("v2", cache.get(1).getName());
+    }
+
+    @Test
+    void invalidate_shouldNotRejectLoadOfAnotherUser() {
+        cache = new OffHeapUserCache(8);
+
+        long loadStamp = cache.beginLoad(1);
+        cache.invalidate(2);
+
+        assertTrue(cache.putLoaded(user(1, "v1"), loadStamp));
+        assertEquals("v1", cache.get(1).getName());
+    }
+
+    @Test
+    void putLoaded_shouldEvictUnreferencedUserWhenFull() {
+        cache = new OffHeapUserCache(3);
+        for (long id = 1; id <= 3; id++) {
+            cache.putLoaded(user(id, "u"), cache.beginLoad(id));
+        }
+        cache.get(1);
+        cache.get(2);
+
+        cache.putLoaded(user(4, "u"), cache.beginLoad(4));
+
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(2));
+        assertNull(cache.get(3));
+        assertNotNull(cache.get(4));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void putLoaded_shouldSkipUserLargerThanSlot() {
+        cache = new OffHeapUserCache(8, 64);
+
+        assertFalse(cache.putLoaded(user(1, "x".repeat(32)), cache.beginLoad(1)));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void invalidate_shouldKeepOtherUsersReachable() {
+        cache = new OffHeapUserCache(10_000);
+        SplittableRandom random = new SplittableRandom(7);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long id = random.nextLong(1, Long.MAX_VALUE);
+            ids.add(id);
+            cache.putLoaded(user(id, "u"), cache.beginLoad(id));
+        }
+
+        for (int i = 0; i < ids.size(); i += 2) {
+            cache.invalidate(ids.get(i));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, cache.get(ids.get(i)) != null, "id " + ids.get(i));
+        }
+        assertEquals(5_000, cache.size());
+    }
+
+    @Test
+    void get_shouldNeverReturnTornUserWhileWriterRewritesIt() throws Exception {
+        cache = new OffHeapUserCache(64);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                results.add(readers.submit(() -> {
+                    long hits = 0;
+                    while (running.get()) {
+                        for (long id = 1; id <= 64; id++) {
+                            User user = cache.get(id);
+                            if (user != null) {
+                                // имя и возраст записываются вместе, поэтому у целой записи они согласованы
+                                assertEquals("user-" + id + "-" + user.getAge(), user.getName());
+                                hits++;
+                            }
+                        }
+                    }
+                    return hits;
+                }));
+            }
+
+            for (int round = 0; round < 2_000; round++) {
+                for (long id = 1; id <= 64; id++) {
+                    int age = round % 100;
+                    cache.putLoaded(User.builder().id(id).name("user-" + id + "-" + age)
+                            .email("user" + id + "@example.com").age(age).build(), cache.beginLoad(id));
+                }
+            }
+            running.set(false);
+            for (Future<Long> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS) >= 0);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private static User user(long id, String name) {
+        return User.builder().id(id).name(name).email("user" + id + "@example.com").age(20)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 0, 0)).version(0L).build();
+    }
+}
@@ -0,0 +1,51 @@
+package dao;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InstrumentedUserDaoTest {
+
+    private UserDao delegate;
+    private SimpleMeterRegistry registry;
+    private UserDao userDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        registry = new SimpleMeterRegistry();
+        userDao = new InstrumentedUserDao(delegate, registry);
+    }
+
+    @Test
+    void findById_shouldRecordTimerAndReturnDelegateResult() {
+        User user = new User();
+        when(delegate.findById(1L)).thenReturn(user);
+
+        assertSame(user, userDao.findById(1L));
+        assertSame(user, userDao.findById(1L));
+
+        Timer timer = registry.get(InstrumentedUserDao.TIMER).tag("method", "findById").timer();
+        assertEquals(2, timer.count());
+        assertEquals(0, registry.get(InstrumentedUserDao.ERRORS).tag("method", "findById").counter().count());
+    }
+
+    @Test
+    void save_shouldCountErrorAndRethrow() {
+        doThrow(new IllegalArgumentException("Пользователь не должен быть null")).when(delegate).save(null);
+
+        assertThrows(IllegalArgumentException.class, () -> userDao.save(null));
+
+        assertEquals(1, registry.get(InstrumentedUserDao.TIMER).tag("method", "save").timer().count());
+        assertEquals(1, registry.get(InstrumentedUserDao.ERRORS).tag("method", "save").counter().count());
+    }
+}
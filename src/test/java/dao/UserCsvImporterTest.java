@@ -0,0 +1,130 @@
+package dao;
+
+import model.User;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import util.HibernateUtil;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+class UserCsvImporterTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-import")
+            .withUsername("postgres-test")
+            .withPassword("postgres-test");
+
+    @TempDir
+    Path tempDir;
+
+    private UserDao userDao;
+
+    @BeforeAll
+    static void setUpAll() {
+        Properties props = new Properties();
+        props.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        props.setProperty("hibernate.connection.username", postgres.getUsername());
+        props.setProperty("hibernate.connection.password", postgres.getPassword());
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+
+        HibernateUtil.init(props);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        HibernateUtil.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeMutationQuery("DROP TABLE IF EXISTS " + UserCsvImporter.REJECTS_TABLE).executeUpdate();
+            session.getTransaction().commit();
+        }
+        userDao = new UserDaoImpl();
+    }
+
+    @Test
+    void importCsv_shouldImportValidRowsAndRejectDuplicatesAndInvalidRowsIT() throws IOException {
+        //Given
+        userDao.save(User.builder().name("Existing").email("existing@example.com").age(50)
+                .createdAt(LocalDateTime.now()).build());
+        Path file = tempDir.resolve("users.csv");
+        Files.writeString(file, """
+                name,email,age,created_at
+                Анна,anna@example.com,25,2024-01-31T12:00:00
+                "Иванов, Пётр",petr@example.com,30,
+                ,noname@example.com,40,
+                Борис,anna@example.com,35,
+                Вера,vera@example.com,abc,
+                Глеб,existing@example.com,45,
+                Дарья,darya@example.com,28,
+
+                Дарья Вторая,darya@example.com,29,
+                """, StandardCharsets.UTF_8);
+        List<ImportResult> progress = new ArrayList<>();
+
+        //When
+        ImportResult result = new UserCsvImporter(3).importCsv(file, progress::add);
+
+        //Then
+        assertEquals(new ImportResult(8, 3, 5), result);
+        assertEquals(List.of(new ImportResult(3, 2, 1), new ImportResult(6, 2, 4), result), progress);
+
+        List<User> users = userDao.findAll();
+        assertEquals(4, users.size());
+        User anna = userDao.findByEmail("anna@example.com");
+        assertEquals("Анна", anna.getName());
+        assertEquals(LocalDateTime.of(2024, 1, 31, 12, 0), anna.getCreatedAt());
+        assertEquals("Иванов, Пётр", userDao.findByEmail("petr@example.com").getName());
+        assertEquals("Дарья", userDao.findByEmail("darya@example.com").getName());
+        assertEquals("Existing", userDao.findByEmail("existing@example.com").getName());
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            List<Object[]> rejects = session.createNativeQuery(
+                    "SELECT line_no, reason FROM " + UserCsvImporter.REJECTS_TABLE + " ORDER BY line_no",
+                    Object[].class).list();
+            assertEquals(List.of(3L, 4L, 5L, 6L, 8L),
+                    rejects.stream().map(row -> ((Number) row[0]).longValue()).toList());
+            assertEquals("name and email are required", rejects.get(0)[1]);
+            assertEquals("duplicate email", rejects.get(1)[1]);
+            assertEquals("duplicate email", rejects.get(3)[1]);
+            assertEquals("duplicate email", rejects.get(4)[1]);
+        }
+    }
+
+    @Test
+    void importCsv_shouldRejectHeaderWithoutRequiredColumnsIT() {
+        //Given
+        StringReader csv = new StringReader("name,age\nАнна,25\n");
+
+        //When / Then
+        assertThrows(IllegalArgumentException.class, () -> new UserCsvImporter().importCsv(csv, null));
+        assertEquals(0, userDao.findAll().size());
+    }
+}
@@ -2,7 +2,10 @@ package dao;
 
 import lombok.extern.slf4j.Slf4j;
 import model.User;
+import model.UserSummary;
+import org.hibernate.Cache;
 import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,8 +16,11 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import util.HibernateUtil;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -43,7 +49,9 @@ class UserDaoImplTest {
         props.setProperty("hibernate.connection.password", postgres.getPassword());
         props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
         props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
-        props.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+        props.setProperty("hibernate.cache.use_second_level_cache", "true");
 
         HibernateUtil.init(props);
     }
@@ -146,6 +154,46 @@ class UserDaoImplTest {
         }
     }
 
+    @Test
+    void saveAll_shouldSaveAllUsersInOneTransactionIT() {
+        //Given
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(User.builder()
+                    .name("Name" + i)
+                    .email("Mail" + i)
+                    .age(i)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+
+        //When
+        int saved = userDao.saveAll(users);
+
+        //Then
+        assertEquals(120, saved);
+        users.forEach(user -> assertNotNull(user.getId()));
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Long count = session.createQuery("SELECT count(u) FROM User u", Long.class).getSingleResult();
+            assertEquals(120L, count);
+        }
+    }
+
+    @Test
+    void saveAll_shouldRollbackWholeBatchWhenOneUserIsDuplicateIT() {
+        //Given
+        List<User> users = List.of(
+                User.builder().name("Name1").email("Mail").age(10).createdAt(LocalDateTime.now()).build(),
+                User.builder().name("Name2").email("Mail").age(20).createdAt(LocalDateTime.now()).build());
+
+        //When / Then
+        assertThrows(RuntimeException.class, () -> userDao.saveAll(users));
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            List<User> result = session.createQuery("FROM User", User.class).list();
+            assertTrue(result.isEmpty());
+        }
+    }
+
     @Test
     void findById_ShouldFindCorrectlyByIdIT() {
         //Given
@@ -210,6 +258,93 @@ class UserDaoImplTest {
         assertNull(userDao.findById(null));
     }
 
+    @Test
+    void findById_ShouldServeRepeatedReadsFromCacheAndSeeUpdatesIT() {
+        //Given
+        User user = User.builder()
+                .name("Name")
+                .email("Mail")
+                .age(10)
+                .createdAt(LocalDateTime.now())
+                .build();
+        userDao.save(user);
+        HibernateUtil.getSessionFactory().getCache().evictAllRegions();
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        statistics.clear();
+
+        //When
+        userDao.findById(user.getId());
+        userDao.findById(user.getId());
+        user.setName("NewName");
+        userDao.update(user);
+        User afterUpdate = userDao.findById(user.getId());
+
+        //Then
+        assertEquals(1, statistics.getCacheRegionStatistics(User.CACHE_REGION).getMissCount());
+        assertTrue(statistics.getCacheRegionStatistics(User.CACHE_REGION).getHitCount() >= 1);
+        assertEquals("NewName", afterUpdate.getName());
+        assertFalse(HibernateUtil.getCacheStatistics().isEmpty());
+    }
+
+    @Test
+    void findByEmail_ShouldResolveNaturalIdAndReuseCacheIT() {
+        //Given
+        User user = User.builder()
+                .name("Name")
+                .email("Mail@Example.com")
+                .age(10)
+                .createdAt(LocalDateTime.now())
+                .build();
+        userDao.save(user);
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        userDao.findByEmail("Mail@Example.com");
+        statistics.clear();
+
+        //When
+        User found = userDao.findByEmail("Mail@Example.com");
+
+        //Then
+        assertEquals(user.getId(), found.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertNull(userDao.findByEmail("mail@example.com"));
+    }
+
+    @Test
+    void findByEmailIgnoreCase_ShouldMatchRegardlessOfCaseIT() {
+        //Given
+        User user = User.builder()
+                .name("Name")
+                .email("Mail@Example.com")
+                .age(10)
+                .createdAt(LocalDateTime.now())
+                .build();
+        userDao.save(user);
+
+        //When
+        User found = userDao.findByEmailIgnoreCase("mail@EXAMPLE.com");
+
+        //Then
+        assertNotNull(found);
+        assertEquals(user.getId(), found.getId());
+    }
+
+    @Test
+    void findByEmailIgnoreCase_ShouldPreferExactMatchAmongSeveralIT() {
+        //Given
+        User first = User.builder().name("First").email("Mail@Example.com").age(10).createdAt(LocalDateTime.now()).build();
+        User second = User.builder().name("Second").email("mail@example.com").age(20).createdAt(LocalDateTime.now()).build();
+        userDao.save(first);
+        userDao.save(second);
+
+        //When
+        User exact = userDao.findByEmailIgnoreCase("mail@example.com");
+        User other = userDao.findByEmailIgnoreCase("MAIL@EXAMPLE.COM");
+
+        //Then
+        assertEquals(second.getId(), exact.getId());
+        assertEquals(first.getId(), other.getId());
+    }
+
     @Test
     void findAll_ShouldReturnTheListCorrectlyIT() {
         //Given
@@ -269,6 +404,243 @@ class UserDaoImplTest {
         }
     }
 
+    @Test
+    void findPage_ShouldWalkAllUsersByKeysetIT() {
+        //Given
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(User.builder().name("Name" + i).email("Mail" + i).age(i).createdAt(LocalDateTime.now()).build());
+        }
+        userDao.saveAll(users);
+
+        //When
+        List<User> first = userDao.findPage(null, 2);
+        List<User> second = userDao.findPage(first.getLast().getId(), 2);
+        List<User> third = userDao.findPage(second.getLast().getId(), 2);
+
+        //Then
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        assertEquals(1, third.size());
+        assertEquals(users.get(0).getId(), first.getFirst().getId());
+        assertEquals(users.get(4).getId(), third.getFirst().getId());
+    }
+
+    @Test
+    void writeBatch_ShouldInsertAndUpdateInOneTransactionIT() {
+        //Given
+        User existing = User.builder().name("Old").email("old@mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(existing);
+        User created = User.builder().name("New").email("new@mail").age(20).createdAt(LocalDateTime.now()).build();
+        User change = User.builder().id(existing.getId()).name("Changed").email("changed@mail").age(11).build();
+        User missing = User.builder().id(-1L).name("Missing").email("missing@mail").age(1).build();
+
+        //When
+        Set<Long> notFound = userDao.writeBatch(List.of(created), List.of(change, missing));
+
+        //Then
+        assertEquals(Set.of(-1L), notFound);
+        assertNotNull(created.getId());
+        assertEquals("Changed", userDao.findById(existing.getId()).getName());
+        assertEquals(2, userDao.findAll().size());
+    }
+
+    @Test
+    void updateIfVersion_ShouldRejectStaleVersionIT() {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(user);
+        User first = userDao.findById(user.getId());
+        User second = userDao.findById(user.getId());
+
+        //When
+        first.setAge(11);
+        int firstUpdated = userDao.updateIfVersion(first);
+        second.setAge(12);
+        int secondUpdated = userDao.updateIfVersion(second);
+
+        //Then
+        assertEquals(1, firstUpdated);
+        assertEquals(0, secondUpdated);
+        User stored = userDao.findById(user.getId());
+        assertEquals(11, stored.getAge());
+        assertEquals(user.getVersion() + 1, stored.getVersion());
+    }
+
+    @Test
+    void updateById_ShouldIncrementVersionIT() {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(user);
+
+        //When
+        userDao.updateById(user.getId(), "Renamed", "Mail", 11);
+
+        //Then
+        assertEquals(user.getVersion() + 1, userDao.findById(user.getId()).getVersion());
+    }
+
+    @Test
+    void upsertByEmail_ShouldInsertThenUpdateSameRowIT() {
+        //Given
+        User first = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        User second = User.builder().name("Renamed").email("Mail").age(11).createdAt(LocalDateTime.now()).build();
+
+        //When
+        UpsertResult inserted = userDao.upsertByEmail(first);
+        UpsertResult updated = userDao.upsertByEmail(second);
+
+        //Then
+        assertEquals(new UpsertResult(1, 0), inserted);
+        assertEquals(new UpsertResult(0, 1), updated);
+        assertEquals(first.getId(), second.getId());
+        User stored = userDao.findById(first.getId());
+        assertEquals("Renamed", stored.getName());
+        assertEquals(11, stored.getAge());
+    }
+
+    @Test
+    void upsertAll_ShouldCountInsertsAndUpdatesAndCollapseDuplicatesIT() {
+        //Given
+        User existing = User.builder().name("Old").email("old@mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(existing);
+        List<User> batch = List.of(
+                User.builder().name("Changed").email("old@mail").age(20).build(),
+                User.builder().name("New").email("new@mail").age(30).build(),
+                User.builder().name("Newer").email("new@mail").age(31).build());
+
+        //When
+        UpsertResult result = userDao.upsertAll(batch);
+
+        //Then
+        assertEquals(new UpsertResult(1, 1), result);
+        assertEquals(existing.getId(), batch.get(0).getId());
+        assertEquals(batch.get(1).getId(), batch.get(2).getId());
+        assertEquals("Changed", userDao.findById(existing.getId()).getName());
+        assertEquals("Newer", userDao.findById(batch.get(2).getId()).getName());
+        assertEquals(2, userDao.findAll().size());
+    }
+
+    @Test
+    void findSummaries_ShouldReturnListingColumnsByKeysetIT() {
+        //Given
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(User.builder().name("Name" + i).email("Mail" + i).age(i).createdAt(LocalDateTime.now()).build());
+        }
+        userDao.saveAll(users);
+
+        //When
+        List<UserSummary> first = userDao.findSummaries(null, 2);
+        List<UserSummary> second = userDao.findSummaries(first.getLast().id(), 2);
+
+        //Then
+        assertEquals(2, first.size());
+        assertEquals(new UserSummary(users.get(0).getId(), "Name0", "Mail0"), first.getFirst());
+        assertEquals(List.of(new UserSummary(users.get(2).getId(), "Name2", "Mail2")), second);
+    }
+
+    @Test
+    void search_ShouldFilterInDatabaseAndPageByKeysetIT() {
+        //Given
+        LocalDateTime now = LocalDateTime.now();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            users.add(User.builder().name((i % 2 == 0 ? "Anna" : "Boris") + i).email("Mail" + i)
+                    .age(20 + i).createdAt(now.minusDays(i)).build());
+        }
+        userDao.saveAll(users);
+        UserSearch filter = UserSearch.builder()
+                .minAge(21).maxAge(28)
+                .createdFrom(now.minusDays(7).minusMinutes(1))
+                .namePrefix("Anna")
+                .build();
+
+        //When
+        UserPage first = userDao.search(filter, new PageRequest(null, 2, true));
+        UserPage second = userDao.search(filter, new PageRequest(null, 2, true).next(first));
+
+        //Then
+        assertEquals(List.of("Anna2", "Anna4"), first.users().stream().map(User::getName).toList());
+        assertEquals(3L, first.total());
+        assertTrue(first.hasNext());
+        assertEquals(List.of("Anna6"), second.users().stream().map(User::getName).toList());
+        assertFalse(second.hasNext());
+        assertNull(second.total());
+    }
+
+    @Test
+    void search_ShouldTreatLikeWildcardsInPrefixLiterallyIT() {
+        //Given
+        userDao.save(User.builder().name("50% off").email("Mail1").age(1).createdAt(LocalDateTime.now()).build());
+        userDao.save(User.builder().name("500 club").email("Mail2").age(1).createdAt(LocalDateTime.now()).build());
+
+        //When
+        UserPage page = userDao.search(UserSearch.builder().namePrefix("50%").build(), PageRequest.first(10));
+
+        //Then
+        assertEquals(List.of("50% off"), page.users().stream().map(User::getName).toList());
+    }
+
+    @Test
+    void aggregates_ShouldBeComputedInDatabaseIT() {
+        //Given
+        LocalDateTime day = LocalDateTime.of(2025, 3, 10, 12, 0);
+        int[] ages = {18, 21, 25, 34, 35, 61};
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < ages.length; i++) {
+            users.add(User.builder().name("Name" + i).email("Mail" + i).age(ages[i])
+                    .createdAt(day.plusDays(i / 4)).build());
+        }
+        userDao.saveAll(users);
+        UserSearch adults = UserSearch.builder().minAge(21).build();
+
+        //When
+        long total = userDao.count(null);
+        long adultCount = userDao.count(adults);
+        AgeStats stats = userDao.ageStats(adults);
+        List<AgeBucket> histogram = userDao.ageHistogram(null, 10);
+        List<SignupBucket> signups = userDao.signups(null, TimeBucket.DAY);
+
+        //Then
+        assertEquals(6, total);
+        assertEquals(5, adultCount);
+        assertEquals(new AgeStats(5, 21, 61, 35.2), stats);
+        assertEquals(List.of(new AgeBucket(10, 1), new AgeBucket(20, 2), new AgeBucket(30, 2), new AgeBucket(60, 1)),
+                histogram);
+        assertEquals(List.of(new SignupBucket(day.toLocalDate().atStartOfDay(), 4),
+                new SignupBucket(day.toLocalDate().plusDays(1).atStartOfDay(), 2)), signups);
+    }
+
+    @Test
+    void ageStats_ShouldReturnEmptyStatsWithoutUsersIT() {
+        //When
+        AgeStats stats = userDao.ageStats(null);
+
+        //Then
+        assertEquals(new AgeStats(0, null, null, null), stats);
+        assertTrue(userDao.ageHistogram(null, 5).isEmpty());
+    }
+
+    @Test
+    void streamAll_ShouldReturnAllUsersOrderedByIdIT() {
+        //Given
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(User.builder().name("Name" + i).email("Mail" + i).age(i).createdAt(LocalDateTime.now()).build());
+        }
+        userDao.saveAll(users);
+
+        //When
+        List<Long> ids;
+        try (Stream<User> stream = userDao.streamAll()) {
+            ids = stream.map(User::getId).toList();
+        }
+
+        //Then
+        assertEquals(users.stream().map(User::getId).toList(), ids);
+    }
+
     @Test
     void update_shouldUpdateSuccessfullyWhenInputIsValidIT() {
         //Given
@@ -339,6 +711,80 @@ class UserDaoImplTest {
         }
     }
 
+    @Test
+    void updateById_shouldUpdateInOneStatementAndReportAffectedRowsIT() {
+        //Given
+        User user = User.builder()
+                .name("Name")
+                .email("Mail")
+                .age(10)
+                .createdAt(LocalDateTime.now())
+                .build();
+        userDao.save(user);
+        userDao.findById(user.getId());
+
+        //When
+        int updated = userDao.updateById(user.getId(), "NewName", "NewMail", 11);
+        int missing = userDao.updateById(999L, "NewName", "OtherMail", 11);
+
+        //Then
+        assertEquals(1, updated);
+        assertEquals(0, missing);
+        User found = userDao.findById(user.getId());
+        assertEquals("NewName", found.getName());
+        assertEquals("NewMail", found.getEmail());
+        assertEquals(11, found.getAge());
+    }
+
+    @Test
+    void deleteById_shouldDeleteInOneStatementAndReportAffectedRowsIT() {
+        //Given
+        User user = User.builder()
+                .name("Name")
+                .email("Mail")
+                .age(10)
+                .createdAt(LocalDateTime.now())
+                .build();
+        userDao.save(user);
+        userDao.findById(user.getId());
+
+        //When
+        int deleted = userDao.deleteById(user.getId());
+        int missing = userDao.deleteById(user.getId());
+
+        //Then
+        assertEquals(1, deleted);
+        assertEquals(0, missing);
+        assertNull(userDao.findById(user.getId()));
+    }
+
+    @Test
+    void updateByIdAndDeleteById_ShouldEvictOnlyAffectedUsersFromCacheIT() {
+        //Given
+        User updated = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        User deleted = User.builder().name("Name").email("DeletedMail").age(10).createdAt(LocalDateTime.now()).build();
+        User untouched = User.builder().name("Name").email("OtherMail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.saveAll(List.of(updated, deleted, untouched));
+        Stream.of(updated, deleted, untouched).forEach(user -> userDao.findByEmail(user.getEmail()));
+        Cache cache = HibernateUtil.getSessionFactory().getCache();
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+
+        //When
+        userDao.updateById(updated.getId(), "NewName", "NewMail", 11);
+        userDao.deleteById(deleted.getId());
+
+        //Then
+        assertFalse(cache.containsEntity(User.class, updated.getId()));
+        assertFalse(cache.containsEntity(User.class, deleted.getId()));
+        assertTrue(cache.containsEntity(User.class, untouched.getId()));
+        statistics.clear();
+        assertEquals(untouched.getId(), userDao.findByEmail("OtherMail").getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertNull(userDao.findByEmail("Mail"));
+        assertNull(userDao.findByEmail("DeletedMail"));
+        assertEquals("NewName", userDao.findByEmail("NewMail").getName());
+    }
+
     @Test
     void delete_ShouldCorrectlyDeleteUserIT() {
         //Given
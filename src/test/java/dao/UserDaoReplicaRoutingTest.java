@@ -0,0 +1,184 @@
+package dao;
+
+import model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import util.HibernateUtil;
+import util.RoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Маршрутизация чтения на реплику. Репликацию изображают два независимых экземпляра PostgreSQL:
+ * строки, записанные напрямую в «реплику», видны только при чтении с неё.
+ */
+@Testcontainers
+class UserDaoReplicaRoutingTest {
+
+    private static final long READ_YOUR_WRITES_MS = 300;
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-primary")
+            .withUsername("postgres-test")
+            .withPassword("postgres-test");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-replica")
+            .withUsername("postgres-replica")
+            .withPassword("postgres-replica");
+
+    private UserDao userDao;
+
+    @BeforeAll
+    static void setUpAll() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("hibernate.connection.url", primary.getJdbcUrl());
+        props.setProperty("hibernate.connection.username", primary.getUsername());
+        props.setProperty("hibernate.connection.password", primary.getPassword());
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+        // Сущность, сохранённая на основном сервере, попадает в кэш второго уровня, и чтение по ID
+        // обслуживалось бы из него, а не с реплики
+        props.setProperty("hibernate.cache.use_second_level_cache", "false");
+        props.setProperty(RoutingDataSource.URLS, replica.getJdbcUrl());
+        props.setProperty(RoutingDataSource.USERNAME, replica.getUsername());
+        props.setProperty(RoutingDataSource.PASSWORD, replica.getPassword());
+        props.setProperty(RoutingDataSource.READ_YOUR_WRITES_MS, String.valueOf(READ_YOUR_WRITES_MS));
+
+        HibernateUtil.init(props);
+
+        execute(replica, """
+                CREATE TABLE users (
+                    id bigint PRIMARY KEY, name varchar(255), email varchar(255) NOT NULL UNIQUE,
+                    age integer NOT NULL, created_at timestamp(6), version bigint NOT NULL DEFAULT 0
+                )""");
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        HibernateUtil.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        execute(primary, "DELETE FROM users");
+        execute(replica, "DELETE FROM users");
+        execute(replica, "INSERT INTO users (id, name, email, age, created_at) "
+                + "VALUES (1000000, 'Replica', 'replica@test', 30, now())");
+        // Окно read-your-writes от записей предыдущего теста должно истечь
+        Thread.sleep(READ_YOUR_WRITES_MS);
+        userDao = new UserDaoImpl();
+    }
+
+    @Test
+    void reads_ShouldBeServedByReplicaIT() {
+        //When
+        List<User> all = userDao.findAll();
+        User byEmail = userDao.findByEmailIgnoreCase("REPLICA@test");
+
+        //Then
+        assertEquals(1, all.size());
+        assertEquals("Replica", all.getFirst().getName());
+        assertNotNull(byEmail);
+    }
+
+    @Test
+    void writes_ShouldGoToPrimaryIT() throws Exception {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+
+        //When
+        userDao.save(user);
+
+        //Then
+        assertEquals(1, count(primary, "Mail"));
+        assertEquals(0, count(replica, "Mail"));
+    }
+
+    @Test
+    void readYourWrites_ShouldReadFromPrimaryRightAfterWriteIT() throws Exception {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(user);
+
+        //When
+        User rightAfterWrite = userDao.findById(user.getId());
+        Thread.sleep(READ_YOUR_WRITES_MS * 2);
+        User afterWindow = userDao.findById(user.getId());
+
+        //Then
+        assertNotNull(rightAfterWrite);
+        assertNull(afterWindow);
+    }
+
+    @Test
+    void readYourWrites_ShouldNotMoveOtherThreadsReadsToPrimaryIT() throws Exception {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(user);
+
+        //When
+        CompletableFuture<List<User>> otherThread = CompletableFuture.supplyAsync(userDao::findAll);
+        List<User> sameThread = userDao.findAll();
+
+        //Then
+        assertEquals(List.of("Replica"), otherThread.get().stream().map(User::getName).toList());
+        assertEquals(List.of("Name"), sameThread.stream().map(User::getName).toList());
+    }
+
+    @Test
+    void findByIdFromPrimary_ShouldReadPrimaryAfterWindowIT() throws Exception {
+        //Given
+        User user = User.builder().name("Name").email("Mail").age(10).createdAt(LocalDateTime.now()).build();
+        userDao.save(user);
+        Thread.sleep(READ_YOUR_WRITES_MS * 2);
+
+        //When
+        User fromReplica = userDao.findById(user.getId());
+        User fromPrimary = userDao.findByIdFromPrimary(user.getId());
+
+        //Then
+        assertNull(fromReplica);
+        assertNotNull(fromPrimary);
+        assertEquals("Mail", fromPrimary.getEmail());
+    }
+
+    private static void execute(PostgreSQLContainer<?> database, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                database.getJdbcUrl(), database.getUsername(), database.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long count(PostgreSQLContainer<?> database, String email) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                database.getJdbcUrl(), database.getUsername(), database.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM users WHERE email = '" + email + "'")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
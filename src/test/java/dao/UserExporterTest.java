@@ -0,0 +1,137 @@
+package dao;
+
+import model.User;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import util.CsvFormat;
+import util.HibernateUtil;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@Testcontainers
+class UserExporterTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 31, 12, 0, 30);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-export")
+            .withUsername("postgres-test")
+            .withPassword("postgres-test");
+
+    @TempDir
+    Path tempDir;
+
+    private User quoted;
+    private User multiline;
+    private User control;
+
+    @BeforeAll
+    static void setUpAll() {
+        Properties props = new Properties();
+        props.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        props.setProperty("hibernate.connection.username", postgres.getUsername());
+        props.setProperty("hibernate.connection.password", postgres.getPassword());
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("schema.migrate", "true");
+        props.setProperty("pool.enabled", "true");
+
+        HibernateUtil.init(props);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        HibernateUtil.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.getTransaction().commit();
+        }
+
+        quoted = User.builder().name("Иванов, \"Пётр\"").email("petr@example.com").age(30).createdAt(CREATED_AT).build();
+        multiline = User.builder().name("Первая\nвторая").email("multi@example.com").age(40).createdAt(CREATED_AT).build();
+        control = User.builder().name("Back\\slash\tTab\u0001").email("ctrl@example.com").age(50).createdAt(CREATED_AT).build();
+        new UserDaoImpl().saveAll(List.of(quoted, multiline, control));
+    }
+
+    @Test
+    void exportCsv_shouldEscapeFieldsSoTheyReadBackUnchangedIT() throws IOException {
+        //When
+        String csv = export(ExportFormat.CSV);
+
+        //Then
+        BufferedReader reader = new BufferedReader(new StringReader(csv));
+        assertEquals(List.of("id", "name", "email", "age", "created_at"), CsvFormat.readRecord(reader));
+        for (User user : List.of(quoted, multiline, control)) {
+            assertEquals(List.of(String.valueOf(user.getId()), user.getName(), user.getEmail(),
+                    String.valueOf(user.getAge()), "2024-01-31T12:00:30"), CsvFormat.readRecord(reader));
+        }
+        assertNull(CsvFormat.readRecord(reader));
+        assertEquals(quoted.getId() + ",\"Иванов, \"\"Пётр\"\"\",petr@example.com,30,2024-01-31T12:00:30",
+                csv.lines().toList().get(1));
+    }
+
+    @Test
+    void exportNdjson_shouldEscapeStringsAndUseColumnNamesIT() {
+        //When
+        List<String> lines = export(ExportFormat.NDJSON).lines().toList();
+
+        //Then
+        assertEquals(List.of(
+                "{\"id\":" + quoted.getId() + ",\"name\":\"Иванов, \\\"Пётр\\\"\",\"email\":\"petr@example.com\","
+                        + "\"age\":30,\"created_at\":\"2024-01-31T12:00:30\"}",
+                "{\"id\":" + multiline.getId() + ",\"name\":\"Первая\\nвторая\",\"email\":\"multi@example.com\","
+                        + "\"age\":40,\"created_at\":\"2024-01-31T12:00:30\"}",
+                "{\"id\":" + control.getId() + ",\"name\":\"Back\\\\slash\\tTab\\u0001\",\"email\":\"ctrl@example.com\","
+                        + "\"age\":50,\"created_at\":\"2024-01-31T12:00:30\"}"),
+                lines);
+    }
+
+    @Test
+    void export_shouldCompressFilesWithGzExtensionIT() throws IOException {
+        //Given
+        Path file = tempDir.resolve("users.ndjson.gz");
+
+        //When
+        long count = new UserExporter().export(file, ExportFormat.NDJSON);
+
+        //Then
+        assertEquals(3, count);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals(export(ExportFormat.NDJSON), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String export(ExportFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UserExporter().export(Channels.newChannel(out), format, false);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
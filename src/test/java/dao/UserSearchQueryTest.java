@@ -0,0 +1,49 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSearchQueryTest {
+
+    @Test
+    void of_shouldProduceSameTextForSameFilterShape() {
+        UserSearchQuery first = UserSearchQuery.of(UserSearch.builder().minAge(25).maxAge(35).namePrefix("A").build());
+        UserSearchQuery second = UserSearchQuery.of(UserSearch.builder().minAge(40).maxAge(50).namePrefix("Bo").build());
+
+        assertEquals(first.selectHql(), second.selectHql());
+        assertEquals(first.countHql(), second.countHql());
+    }
+
+    @Test
+    void of_shouldIncludeOnlyGivenConditions() {
+        UserSearchQuery query = UserSearchQuery.of(UserSearch.builder()
+                .createdFrom(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .build());
+
+        assertEquals("FROM User u WHERE u.id > :afterId AND u.createdAt >= :createdFrom ORDER BY u.id",
+                query.selectHql());
+        assertEquals("SELECT count(u) FROM User u WHERE u.createdAt >= :createdFrom", query.countHql());
+        assertFalse(query.selectHql().contains("u.age"));
+    }
+
+    @Test
+    void of_shouldSearchWithoutConditionsWhenFilterIsEmpty() {
+        UserSearchQuery query = UserSearchQuery.of(UserSearch.ALL);
+
+        assertEquals("FROM User u WHERE u.id > :afterId ORDER BY u.id", query.selectHql());
+        assertEquals("SELECT count(u) FROM User u", query.countHql());
+        assertTrue(UserSearchQuery.of(null).countHql().endsWith("FROM User u"));
+    }
+
+    @Test
+    void pageRequest_shouldBoundLimit() {
+        assertEquals(PageRequest.MAX_LIMIT, new PageRequest(null, 1_000_000, false).limit());
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.first(0));
+    }
+}
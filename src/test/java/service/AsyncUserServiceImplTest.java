@@ -0,0 +1,86 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncUserServiceImplTest {
+
+    private UserService userService;
+    private AsyncUserService asyncUserService;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        asyncUserService = new AsyncUserServiceImpl(userService, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncUserService.close();
+    }
+
+    @Test
+    void getUsersByIds_shouldReturnUsersInRequestedOrder() {
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setId(invocation.getArgument(0));
+            return user;
+        });
+
+        List<User> result = asyncUserService.getUsersByIds(List.of(3L, 1L, 2L)).join();
+
+        assertEquals(List.of(3L, 1L, 2L), result.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void getUsersByIds_shouldNotExceedInFlightLimit() {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            current.decrementAndGet();
+            return new User();
+        });
+
+        List<Long> ids = LongStream.rangeClosed(1, 50).boxed().toList();
+        List<User> result = asyncUserService.getUsersByIds(ids).join();
+
+        assertEquals(50, result.size());
+        assertTrue(max.get() <= 4);
+        assertTrue(max.get() > 1);
+    }
+
+    @Test
+    void getUserById_shouldCompleteExceptionallyWhenUserNotFound() {
+        when(userService.getUserById(1L)).thenThrow(new NoSuchElementException("Пользователь не найден"));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> asyncUserService.getUserById(1L).join());
+        assertInstanceOf(NoSuchElementException.class, e.getCause());
+    }
+
+    @Test
+    void updateUser_shouldDelegateToUserService() {
+        asyncUserService.updateUser(1L, "Name", "Mail", 10).join();
+
+        verify(userService).updateUser(1L, "Name", "Mail", 10);
+    }
+}
@@ -1,23 +1,48 @@
 package service;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import cache.OffHeapUserCache;
+import dao.AgeBucket;
+import dao.PageRequest;
+import dao.TimeBucket;
+import dao.UpsertResult;
 import dao.UserDao;
+import dao.UserPage;
+import dao.UserSearch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
 import model.User;
+import model.UserSummary;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.slf4j.LoggerFactory;
+import util.RetryPolicy;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class UserServiceImplTest {
 
+    private final Logger auditLogger = (Logger) LoggerFactory.getLogger("audit");
+    private final ListAppender<ILoggingEvent> auditEvents = new ListAppender<>();
+
     private UserDao userDao;
     private UserService userService;
 
@@ -25,6 +50,13 @@ class UserServiceImplTest {
     void setUp() {
         userDao = mock(UserDao.class);
         userService = new UserServiceImpl(userDao);
+        auditEvents.start();
+        auditLogger.addAppender(auditEvents);
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditLogger.detachAppender(auditEvents);
     }
 
     @Test
@@ -41,12 +73,112 @@ class UserServiceImplTest {
         assertNotNull(saved.getCreatedAt());
     }
 
+    @Test
+    void createUser_shouldAuditOnlyAfterSuccessfulSave() {
+        doThrow(new IllegalStateException("Ошибка записи")).doNothing().when(userDao).save(any());
+
+        assertThrows(IllegalStateException.class, () -> userService.createUser("Name", "Mail", 10));
+        assertTrue(auditEvents.list.isEmpty());
+
+        userService.createUser("Name", "Mail", 10);
+        assertEquals(1, auditEvents.list.size());
+    }
+
+    @Test
+    void createUsers_shouldNotAuditWhenNothingSaved() {
+        when(userDao.saveAll(List.of())).thenReturn(0);
+
+        assertEquals(0, userService.createUsers(List.of()));
+        assertTrue(auditEvents.list.isEmpty());
+    }
+
     @Test
     void createUser_shouldThrowWhenNameIsNull() {
         assertThrows(IllegalArgumentException.class,
                 () -> userService.createUser(null, "Mail", 10));
     }
 
+    @Test
+    void createUsers_shouldFillCreatedAtAndSaveInOneCall() {
+        User first = User.builder().name("Name1").email("Mail1").age(10).build();
+        User second = User.builder().name("Name2").email("Mail2").age(20).build();
+        List<User> users = List.of(first, second);
+        when(userDao.saveAll(users)).thenReturn(2);
+
+        int saved = userService.createUsers(users);
+
+        assertEquals(2, saved);
+        verify(userDao).saveAll(users);
+        assertNotNull(first.getCreatedAt());
+        assertNotNull(second.getCreatedAt());
+    }
+
+    @Test
+    void createUsers_shouldThrowWhenEmailIsNull() {
+        List<User> users = List.of(User.builder().name("Name").age(10).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.createUsers(users));
+    }
+
+    @Test
+    void modifyUser_shouldRetryOnVersionConflict() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userService = new UserServiceImpl(userDao, new RetryPolicy(3, Duration.ZERO, Duration.ZERO), registry);
+        when(userDao.findByIdFromPrimary(1L)).thenAnswer(invocation ->
+                User.builder().id(1L).name("Name").email("Mail").age(10).version(7L).build());
+        when(userDao.updateIfVersion(any())).thenReturn(0, 1);
+
+        User result = userService.modifyUser(1L, user -> user.setAge(user.getAge() + 1));
+
+        assertEquals(11, result.getAge());
+        verify(userDao, times(2)).updateIfVersion(any());
+        assertEquals(1, registry.counter(UserServiceImpl.UPDATE_CONFLICTS).count());
+    }
+
+    @Test
+    void modifyUser_shouldGiveUpAfterMaxAttempts() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userService = new UserServiceImpl(userDao, new RetryPolicy(3, Duration.ZERO, Duration.ZERO), registry);
+        when(userDao.findByIdFromPrimary(1L)).thenAnswer(invocation ->
+                User.builder().id(1L).name("Name").email("Mail").age(10).version(7L).build());
+        when(userDao.updateIfVersion(any())).thenReturn(0);
+
+        assertThrows(OptimisticLockException.class,
+                () -> userService.modifyUser(1L, user -> user.setName("Other")));
+        verify(userDao, times(3)).updateIfVersion(any());
+        assertEquals(1, registry.counter(UserServiceImpl.UPDATE_RETRIES_EXHAUSTED).count());
+    }
+
+    @Test
+    void modifyUser_shouldThrowWhenUserNotFound() {
+        when(userDao.findByIdFromPrimary(1L)).thenReturn(null);
+
+        assertThrows(NoSuchElementException.class,
+                () -> userService.modifyUser(1L, user -> user.setAge(1)));
+        verify(userDao, never()).updateIfVersion(any());
+    }
+
+    @Test
+    void upsertUser_shouldDelegateToUpsertByEmail() {
+        when(userDao.upsertByEmail(any())).thenReturn(new UpsertResult(0, 1));
+
+        UpsertResult result = userService.upsertUser("Name", "Mail", 10);
+
+        assertEquals(new UpsertResult(0, 1), result);
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userDao).upsertByEmail(captor.capture());
+        assertEquals("Mail", captor.getValue().getEmail());
+        assertNotNull(captor.getValue().getCreatedAt());
+    }
+
+    @Test
+    void upsertUsers_shouldThrowWhenNameIsNull() {
+        List<User> users = List.of(User.builder().email("Mail").age(10).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.upsertUsers(users));
+        verify(userDao, never()).upsertAll(any());
+    }
+
     @Test
     void getUserById_shouldReturnUser() {
         User user = new User();
@@ -70,29 +202,89 @@ class UserServiceImplTest {
                 () -> userService.getUserById(1L));
     }
 
+    @Test
+    void getUserByEmail_shouldReturnUser() {
+        User user = new User();
+        user.setEmail("Mail");
+        when(userDao.findByEmail("Mail")).thenReturn(user);
+
+        assertEquals("Mail", userService.getUserByEmail("Mail").getEmail());
+    }
+
+    @Test
+    void getUserByEmailIgnoreCase_shouldThrowWhenUserNotFound() {
+        when(userDao.findByEmailIgnoreCase("MAIL")).thenReturn(null);
+        assertThrows(NoSuchElementException.class,
+                () -> userService.getUserByEmailIgnoreCase("MAIL"));
+    }
+
     @Test
     void updateUser_shouldUpdateUserCorrectly() {
-        User existingUser = new User();
-        existingUser.setId(1L);
-        when(userDao.findById(1L)).thenReturn(existingUser);
+        when(userDao.updateById(1L, "Name", "Mail", 10)).thenReturn(1);
 
         userService.updateUser(1L, "Name", "Mail", 10);
 
-        verify(userDao).update(existingUser);
-        assertEquals("Name", existingUser.getName());
-        assertEquals("Mail", existingUser.getEmail());
-        assertEquals(10, existingUser.getAge());
+        verify(userDao).updateById(1L, "Name", "Mail", 10);
+        verify(userDao, never()).findById(any());
+    }
+
+    @Test
+    void updateUser_shouldThrowWhenUserNotFound() {
+        when(userDao.updateById(1L, "Name", "Mail", 10)).thenReturn(0);
+        assertThrows(NoSuchElementException.class,
+                () -> userService.updateUser(1L, "Name", "Mail", 10));
     }
 
     @Test
     void deleteUserById_shouldDeleteUser() {
-        User user = new User();
-        user.setId(2L);
-        when(userDao.findById(2L)).thenReturn(user);
+        when(userDao.deleteById(2L)).thenReturn(1);
 
         userService.deleteUserById(2L);
 
-        verify(userDao).delete(user);
+        verify(userDao).deleteById(2L);
+        verify(userDao, never()).findById(any());
+    }
+
+    @Test
+    void deleteUserById_shouldThrowWhenUserNotFound() {
+        when(userDao.deleteById(2L)).thenReturn(0);
+        assertThrows(NoSuchElementException.class,
+                () -> userService.deleteUserById(2L));
+    }
+
+    @Test
+    void getUserById_shouldServeRepeatedReadsFromOffHeapCache() {
+        try (OffHeapUserCache cache = new OffHeapUserCache(16)) {
+            userService = new UserServiceImpl(userDao, RetryPolicy.DEFAULT, new SimpleMeterRegistry(), cache);
+            when(userDao.findByIdFromPrimary(1L)).thenReturn(User.builder().id(1L).name("Name").email("Mail").age(10).build());
+
+            User first = userService.getUserById(1L);
+            User second = userService.getUserById(1L);
+
+            verify(userDao, times(1)).findByIdFromPrimary(1L);
+            verify(userDao, never()).findById(any());
+            assertEquals(first, second);
+            assertEquals(1, cache.stats().hits());
+        }
+    }
+
+    @Test
+    void updateAndDelete_shouldInvalidateOffHeapCache() {
+        try (OffHeapUserCache cache = new OffHeapUserCache(16)) {
+            userService = new UserServiceImpl(userDao, RetryPolicy.DEFAULT, new SimpleMeterRegistry(), cache);
+            when(userDao.findByIdFromPrimary(1L)).thenReturn(
+                    User.builder().id(1L).name("Name").email("Mail").age(10).build(),
+                    User.builder().id(1L).name("Other").email("Mail").age(11).build());
+            when(userDao.updateById(1L, "Other", "Mail", 11)).thenReturn(1);
+            when(userDao.deleteById(1L)).thenReturn(1);
+
+            userService.getUserById(1L);
+            userService.updateUser(1L, "Other", "Mail", 11);
+
+            assertEquals("Other", userService.getUserById(1L).getName());
+            userService.deleteUserById(1L);
+            assertEquals(0, cache.size());
+        }
     }
 
     @Test
@@ -103,4 +295,56 @@ class UserServiceImplTest {
         List<User> result = userService.getAllUsers();
         assertEquals(2, result.size());
     }
+
+    @Test
+    void getUsersPage_shouldDelegateToKeysetQuery() {
+        List<User> page = List.of(new User(), new User());
+        when(userDao.findPage(5L, 2)).thenReturn(page);
+
+        List<User> result = userService.getUsersPage(5L, 2);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void getUsersPage_shouldThrowWhenLimitIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getUsersPage(null, 0));
+    }
+
+    @Test
+    void getUserSummaries_shouldDelegateToProjectionQuery() {
+        List<UserSummary> page = List.of(new UserSummary(1L, "Name", "Mail"));
+        when(userDao.findSummaries(null, 10)).thenReturn(page);
+
+        List<UserSummary> result = userService.getUserSummaries(null, 10);
+        assertEquals(page, result);
+    }
+
+    @Test
+    void searchUsers_shouldUseEmptyFilterWhenNull() {
+        UserPage page = new UserPage(List.of(new User()), null, 1L);
+        when(userDao.search(UserSearch.ALL, PageRequest.first(10))).thenReturn(page);
+
+        assertEquals(page, userService.searchUsers(null, PageRequest.first(10)));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers(UserSearch.ALL, null));
+    }
+
+    @Test
+    void countUsers_shouldCountInDatabaseWithoutLoadingUsers() {
+        when(userDao.count(UserSearch.ALL)).thenReturn(42L);
+
+        assertEquals(42L, userService.countUsers());
+        verify(userDao, never()).findAll();
+    }
+
+    @Test
+    void aggregates_shouldValidateArgumentsAndDelegate() {
+        List<AgeBucket> histogram = List.of(new AgeBucket(20, 3));
+        when(userDao.ageHistogram(UserSearch.ALL, 10)).thenReturn(histogram);
+
+        assertEquals(histogram, userService.getAgeHistogram(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.getAgeHistogram(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.getSignups(null, null));
+        assertEquals(List.of(), userService.getSignups(null, TimeBucket.DAY));
+    }
 }
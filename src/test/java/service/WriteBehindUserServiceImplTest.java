@@ -0,0 +1,136 @@
+package service;
+
+import dao.UserDao;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindUserServiceImplTest {
+
+    private final UserDao userDao = mock(UserDao.class);
+    private WriteBehindUserService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateUser_shouldCoalesceUpdatesOfSameUser() throws Exception {
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenReturn(Set.of());
+        service = new WriteBehindUserServiceImpl(userDao, 100, 100, Duration.ofMillis(100));
+
+        CompletableFuture<Void> first = service.updateUser(1L, "Old", "old@mail", 10);
+        CompletableFuture<Void> second = service.updateUser(1L, "New", "new@mail", 20);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertSame(first, second);
+        ArgumentCaptor<Collection<User>> updates = ArgumentCaptor.forClass(Collection.class);
+        verify(userDao).writeBatch(any(), updates.capture());
+        User written = updates.getValue().iterator().next();
+        assertEquals(1, updates.getValue().size());
+        assertEquals("New", written.getName());
+        assertEquals(20, written.getAge());
+    }
+
+    @Test
+    void createUser_shouldFlushWhenBatchIsFull() throws Exception {
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenReturn(Set.of());
+        service = new WriteBehindUserServiceImpl(userDao, 100, 2, Duration.ofHours(1));
+
+        CompletableFuture<Void> first = service.createUser("A", "a@mail", 1);
+        CompletableFuture<Void> second = service.createUser("B", "b@mail", 2);
+
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        verify(userDao, times(1)).writeBatch(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void updateUser_shouldFailWhenUserIsMissing() {
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenReturn(Set.of(5L));
+        service = new WriteBehindUserServiceImpl(userDao, 100, 1, Duration.ZERO);
+
+        CompletableFuture<Void> future = service.updateUser(5L, "Name", "Mail", 10);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NoSuchElementException.class, e.getCause());
+    }
+
+    @Test
+    void failedBatch_shouldBeRetriedOneByOne() throws Exception {
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenAnswer(invocation -> {
+            Collection<User> inserts = invocation.getArgument(0);
+            if (inserts.stream().anyMatch(user -> user.getEmail().equals("taken@mail"))) {
+                throw new IllegalStateException("duplicate email");
+            }
+            return Set.of();
+        });
+        service = new WriteBehindUserServiceImpl(userDao, 100, 2, Duration.ofHours(1));
+
+        CompletableFuture<Void> good = service.createUser("A", "free@mail", 1);
+        CompletableFuture<Void> bad = service.createUser("B", "taken@mail", 2);
+
+        good.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void createUser_shouldBlockWhenBufferIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenAnswer(invocation -> {
+            release.await();
+            return Set.of();
+        });
+        service = new WriteBehindUserServiceImpl(userDao, 1, 1, Duration.ZERO);
+
+        // Первая запись занимает поток записи, вторая заполняет буфер
+        CompletableFuture<Void> first = service.createUser("A", "a@mail", 1);
+        CompletableFuture<Void> second = service.createUser("B", "b@mail", 2);
+        CompletableFuture<CompletableFuture<Void>> third =
+                CompletableFuture.supplyAsync(() -> service.createUser("C", "c@mail", 3));
+
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+
+        release.countDown();
+        CompletableFuture.allOf(first, second, third.get(5, TimeUnit.SECONDS)).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void close_shouldFlushPendingWrites() throws Exception {
+        when(userDao.writeBatch(anyCollection(), anyCollection())).thenReturn(Set.of());
+        service = new WriteBehindUserServiceImpl(userDao, 100, 100, Duration.ofHours(1));
+
+        CompletableFuture<Void> future = service.createUser("A", "a@mail", 1);
+        service.close();
+
+        future.get(0, TimeUnit.SECONDS);
+        assertThrows(IllegalStateException.class, () -> service.createUser("B", "b@mail", 2));
+    }
+}
@@ -0,0 +1,53 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvFormatTest {
+
+    @Test
+    void readRecord_shouldSplitPlainAndQuotedFields() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("Name,\"Mail, Inc\",10\r\n\"Say \"\"hi\"\"\",,\"\"\n"));
+
+        assertEquals(List.of("Name", "Mail, Inc", "10"), CsvFormat.readRecord(reader));
+        assertEquals(Arrays.asList("Say \"hi\"", null, ""), CsvFormat.readRecord(reader));
+        assertNull(CsvFormat.readRecord(reader));
+    }
+
+    @Test
+    void readRecord_shouldKeepLineBreaksInsideQuotes() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader("\"line1\nline2\",x"));
+
+        assertEquals(List.of("line1\nline2", "x"), CsvFormat.readRecord(reader));
+    }
+
+    @Test
+    void readRecord_shouldThrowOnUnterminatedQuote() {
+        BufferedReader reader = new BufferedReader(new StringReader("\"broken,x\n"));
+
+        assertThrows(IOException.class, () -> CsvFormat.readRecord(reader));
+    }
+
+    @Test
+    void appendField_shouldRoundTripThroughReadRecord() throws IOException {
+        StringBuilder out = new StringBuilder();
+        CsvFormat.appendField(out, "a,\"b\"");
+        out.append(',');
+        CsvFormat.appendField(out, null);
+        out.append(',');
+        CsvFormat.appendField(out, "");
+        out.append('\n');
+
+        List<String> record = CsvFormat.readRecord(new BufferedReader(new StringReader(out.toString())));
+        assertEquals(Arrays.asList("a,\"b\"", null, ""), record);
+    }
+}
@@ -0,0 +1,59 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Быстрый запуск не обращается к базе, поэтому проверяется на заведомо недоступном адресе.
+ */
+class HibernateUtilFastStartupTest {
+
+    @AfterEach
+    void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    @Test
+    void init_shouldBuildSessionFactoryWithoutDatabase() {
+        Properties props = unreachableDatabase();
+        props.setProperty(HibernateUtil.FAST_STARTUP, "true");
+
+        HibernateUtil.init(props);
+
+        assertNotNull(HibernateUtil.getSessionFactory());
+        BootstrapTimings timings = HibernateUtil.getBootstrapTimings();
+        assertTrue(timings.phases().stream().anyMatch(phase -> phase.name().equals("SessionFactory")));
+        assertFalse(timings.phases().stream().anyMatch(phase -> phase.name().equals("миграции")));
+        assertTrue(timings.totalMillis() >= 0);
+    }
+
+    @Test
+    void init_shouldRequireDialect() {
+        Properties props = unreachableDatabase();
+        props.setProperty(HibernateUtil.FAST_STARTUP, "true");
+        props.remove("hibernate.dialect");
+
+        assertThrows(ExceptionInInitializerError.class, () -> HibernateUtil.init(props));
+        assertNull(HibernateUtil.getSessionFactory());
+    }
+
+    private static Properties unreachableDatabase() {
+        Properties props = new Properties();
+        props.setProperty("hibernate.connection.url", "jdbc:postgresql://127.0.0.1:1/none");
+        props.setProperty("hibernate.connection.username", "none");
+        props.setProperty("hibernate.connection.password", "none");
+        props.setProperty("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.setProperty("hibernate.cache.use_second_level_cache", "false");
+        props.setProperty("pool.enabled", "true");
+        return props;
+    }
+}
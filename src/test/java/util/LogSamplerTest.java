@@ -0,0 +1,42 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogSamplerTest {
+
+    @Test
+    void tryAcquire_shouldAllowLimitPerWindowAndCountTheRest() {
+        LogSampler sampler = new LogSampler(2, Duration.ofHours(1));
+
+        assertTrue(sampler.tryAcquire());
+        assertTrue(sampler.tryAcquire());
+        assertFalse(sampler.tryAcquire());
+        assertFalse(sampler.tryAcquire());
+
+        assertEquals(2, sampler.drainSuppressed());
+        assertEquals(0, sampler.drainSuppressed());
+    }
+
+    @Test
+    void tryAcquire_shouldAllowAgainAfterWindowPasses() throws InterruptedException {
+        LogSampler sampler = new LogSampler(1, Duration.ofMillis(20));
+
+        assertTrue(sampler.tryAcquire());
+        assertFalse(sampler.tryAcquire());
+        Thread.sleep(40);
+
+        assertTrue(sampler.tryAcquire());
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(0, Duration.ofSeconds(1)));
+    }
+}
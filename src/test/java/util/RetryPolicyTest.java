@@ -0,0 +1,40 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void backoff_shouldStayWithinDoublingBound() {
+        RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(1000));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(policy.backoff(1).compareTo(Duration.ofMillis(10)) <= 0);
+            assertTrue(policy.backoff(3).compareTo(Duration.ofMillis(40)) <= 0);
+        }
+    }
+
+    @Test
+    void backoff_shouldNotExceedMaxDelay() {
+        RetryPolicy policy = new RetryPolicy(100, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(policy.backoff(80).compareTo(Duration.ofMillis(50)) <= 0);
+        }
+    }
+
+    @Test
+    void backoff_shouldBeZeroWithoutDelay() {
+        RetryPolicy policy = new RetryPolicy(3, Duration.ZERO, Duration.ZERO);
+
+        assertEquals(Duration.ZERO, policy.backoff(2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RetryPolicy(0, Duration.ZERO, Duration.ZERO));
+    }
+}
@@ -0,0 +1,102 @@
+package util;
+
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Миграции на пустой базе и на базе, схему которой создал {@code hibernate.hbm2ddl.auto=update}
+ * при генерации идентификаторов через IDENTITY.
+ */
+@Testcontainers
+class SchemaMigrationsTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("userdb-migrations")
+            .withUsername("postgres-test")
+            .withPassword("postgres-test");
+
+    private Properties settings;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        execute("DROP SCHEMA public CASCADE");
+        execute("CREATE SCHEMA public");
+
+        settings = new Properties();
+        settings.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        settings.setProperty("hibernate.connection.username", postgres.getUsername());
+        settings.setProperty("hibernate.connection.password", postgres.getPassword());
+    }
+
+    @Test
+    void migrate_shouldCreateSchemaOnEmptyDatabaseIT() throws SQLException {
+        //When
+        int executed = SchemaMigrations.migrate(settings, null);
+
+        //Then
+        assertEquals(3, executed);
+        assertEquals(1, queryLong("SELECT count(*) FROM information_schema.columns "
+                + "WHERE table_name = 'users' AND column_name = 'version'"));
+        assertEquals(1, queryLong("SELECT nextval('users_seq')"));
+        assertEquals(0, SchemaMigrations.migrate(settings, null));
+    }
+
+    @Test
+    void migrate_shouldUpgradeLegacySchemaIT() throws SQLException {
+        //Given
+        execute("""
+                CREATE TABLE users (
+                    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    name varchar(255) NOT NULL, email varchar(255) NOT NULL UNIQUE,
+                    age integer NOT NULL, created_at timestamp(6) NOT NULL
+                )""");
+        execute("""
+                INSERT INTO users (name, email, age, created_at)
+                SELECT 'Name' || g, 'mail' || g, 30, now() FROM generate_series(1, 120) g""");
+
+        //When
+        SchemaMigrations.migrate(settings, null);
+
+        //Then
+        assertEquals(0, queryLong("SELECT sum(version) FROM users"));
+        assertEquals(0, queryLong("SELECT count(*) FROM information_schema.columns "
+                + "WHERE table_name = 'users' AND column_name = 'id' AND (is_identity = 'YES' OR column_default IS NOT NULL)"));
+        // Hibernate выдаёт блок id, который заканчивается значением nextval
+        long next = queryLong("SELECT nextval('users_seq')");
+        assertTrue(next - (User.ID_ALLOCATION_SIZE - 1) > 120, "Последовательность не сдвинута за существующие id: " + next);
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long queryLong(String sql) throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}